@@ -1,59 +1,576 @@
 package com.wayne.aliyun_oss;
 
 import okhttp3.*;
+import okio.BufferedSource;
+import okio.Okio;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.*;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.zip.CheckedInputStream;
+import java.util.stream.StreamSupport;
 
 public class AliyunOSS {
+    public static final long DEFAULT_PART_SIZE = 8L * 1024 * 1024;
+    public static final long DEFAULT_MULTIPART_THRESHOLD = 64L * 1024 * 1024;
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 16;
+    public static final int DEFAULT_MAX_TRANSFERS_PER_HOST = 16;
+    public static final int DEFAULT_MAX_REQUESTS = 64;
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 16;
+    public static final long DEFAULT_KEEP_ALIVE_MILLIS = 5 * 60 * 1000L;
+    public static final long DEFAULT_SOCKET_TIMEOUT_MILLIS = 60 * 1000L;
+    public static final int DEFAULT_READ_BLOCK_SIZE = 64 * 1024;
+    public static final int DEFAULT_READ_AHEAD = 256 * 1024;
+    static final long MIN_PART_SIZE = 100L * 1024;
+    static final int MAX_PART_COUNT = 10000;
+    static final int LIST_PAGE_SIZE = 1000;
+    static final long MAX_COPY_OBJECT_SIZE = 1024L * 1024 * 1024;
+    static final long COPY_PART_SIZE = 128L * 1024 * 1024;
+    static final String CONTENT_MD5_META = "x-oss-meta-content-md5";
+    static final int READ_CACHE_BLOCKS = 32;
+    static final int DELETE_BATCH_SIZE = 1000;
+    static final int TRANSFER_QUEUE_CAPACITY = 1024;
+    static final int PARALLEL_LIST_BUFFERED_PAGES = 16;
+
     private final String endpoint;
     private final String bucketName;
     private final String apiKey;
     private final String apiSecret;
     private final OkHttpClient client;
+    private final long metadataTimeoutMillis;
+    private final long transferTimeoutMillis;
+    private final RetryInterceptor retryInterceptor;
+    private final LatencyTracker readLatency;
+    private final RateLimiter globalLimiter;
+    private final ThrottlingInterceptor.TransferLimits transferLimits;
+    private final TransferObserver observer;
     private final boolean verbose;
+    private final Settings settings;
+    private final TransferScheduler.HostSlots hostSlots;
+    /**
+     * 未指定 OkHttpClient、连接池或调度器时，所有实例共用这一个客户端的连接池和调度器，
+     * 访问同一个 endpoint 的多个存储桶实例因此可以复用已建立的连接
+     */
+    private static final OkHttpClient SHARED_CLIENT = new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS))
+            .dispatcher(newDispatcher(DEFAULT_MAX_REQUESTS, DEFAULT_MAX_CONNECTIONS_PER_HOST))
+            .build();
+    private static final ScheduledExecutorService DEADLINE_TIMER =
+            Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("oss-deadline"));
+    private final ExecutorService backgroundExecutor;
 
     public AliyunOSS(String endpoint, String bucketName, String apiKey, String apiSecret) {
         this(endpoint, bucketName, apiKey, apiSecret, true);
     }
 
     public AliyunOSS(String endpoint, String bucketName, String apiKey, String apiSecret, boolean verbose) {
-        this.endpoint = endpoint;
-        this.bucketName = bucketName;
-        this.apiKey = apiKey;
-        this.apiSecret = apiSecret;
-        this.verbose = verbose;
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(60, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(60, TimeUnit.SECONDS)
+        this(builder(endpoint, bucketName, apiKey, apiSecret).verbose(verbose));
+    }
+
+    private AliyunOSS(Builder builder) {
+        this.endpoint = builder.endpoint;
+        this.bucketName = builder.bucketName;
+        this.apiKey = builder.apiKey;
+        this.apiSecret = builder.apiSecret;
+        this.verbose = builder.verbose;
+        this.retryInterceptor = new RetryInterceptor(this, builder.retryPolicy);
+        this.client = builder.buildClient(retryInterceptor);
+        this.metadataTimeoutMillis = builder.metadataTimeoutMillis;
+        this.transferTimeoutMillis = builder.transferTimeoutMillis;
+        this.readLatency = new LatencyTracker();
+        this.globalLimiter = new RateLimiter(builder.rateLimit);
+        this.transferLimits = new ThrottlingInterceptor.TransferLimits(Collections.singletonList(globalLimiter));
+        this.observer = new TransferObserver(this, new TransferMetrics(client), builder.listener);
+        this.hostSlots = new TransferScheduler.HostSlots(DEFAULT_MAX_TRANSFERS_PER_HOST);
+        this.settings = new Settings();
+        this.settings.resumableUploads = builder.resumableUploads;
+        this.backgroundExecutor = Executors.newCachedThreadPool(daemonThreadFactory("oss-background"));
+    }
+
+    /**
+     * 限速视图：与 parent 共用客户端、全局限速和各项设置，任一方修改设置对另一方同样生效；传输额外受 transferLimiter 限制
+     */
+    private AliyunOSS(AliyunOSS parent, RateLimiter transferLimiter) {
+        this.endpoint = parent.endpoint;
+        this.bucketName = parent.bucketName;
+        this.apiKey = parent.apiKey;
+        this.apiSecret = parent.apiSecret;
+        this.verbose = parent.verbose;
+        this.retryInterceptor = parent.retryInterceptor;
+        this.client = parent.client;
+        this.metadataTimeoutMillis = parent.metadataTimeoutMillis;
+        this.transferTimeoutMillis = parent.transferTimeoutMillis;
+        this.readLatency = parent.readLatency;
+        this.globalLimiter = parent.globalLimiter;
+        List<RateLimiter> limiters = new ArrayList<>(parent.transferLimits.limiters());
+        limiters.add(transferLimiter);
+        this.transferLimits = new ThrottlingInterceptor.TransferLimits(limiters);
+        this.observer = parent.observer;
+        this.backgroundExecutor = parent.backgroundExecutor;
+        this.hostSlots = parent.hostSlots;
+        this.settings = parent.settings;
+    }
+
+    /**
+     * 创建可配置传输参数的构建器
+     * @param endpoint OSS访问域名
+     * @param bucketName 存储桶名称
+     * @param apiKey AccessKey ID
+     * @param apiSecret AccessKey Secret
+     */
+    public static Builder builder(String endpoint, String bucketName, String apiKey, String apiSecret) {
+        return new Builder(endpoint, bucketName, apiKey, apiSecret);
+    }
+
+    /**
+     * AliyunOSS 的构建器。默认所有实例共用同一个连接池和调度器；
+     * 传入 OkHttpClient、ConnectionPool 或 Dispatcher 时使用传入的对象，以便与其他客户端共享连接和线程。
+     * 只设置连接池或调度器的参数而不传入对象时，为该实例单独创建，不影响共享的默认客户端
+     */
+    public static class Builder {
+        private final String endpoint;
+        private final String bucketName;
+        private final String apiKey;
+        private final String apiSecret;
+        private boolean verbose = true;
+        private OkHttpClient httpClient;
+        private ConnectionPool connectionPool;
+        private Dispatcher dispatcher;
+        private int maxIdleConnections = -1;
+        private long keepAliveMillis = -1;
+        private int maxRequests = -1;
+        private int maxRequestsPerHost = -1;
+        private List<Protocol> protocols;
+        private long connectTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+        private long readTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+        private long writeTimeoutMillis = DEFAULT_SOCKET_TIMEOUT_MILLIS;
+        private long metadataTimeoutMillis;
+        private long transferTimeoutMillis;
+        private RetryPolicy retryPolicy = RetryPolicy.defaults();
+        private long rateLimit;
+        private TransferListener listener = TransferListener.NOOP;
+        private boolean resumableUploads;
+
+        private Builder(String endpoint, String bucketName, String apiKey, String apiSecret) {
+            this.endpoint = endpoint;
+            this.bucketName = bucketName;
+            this.apiKey = apiKey;
+            this.apiSecret = apiSecret;
+        }
+
+        public Builder verbose(boolean verbose) {
+            this.verbose = verbose;
+            return this;
+        }
+
+        /**
+         * 在传入的客户端基础上派生，共享其连接池、调度器和拦截器，本构建器的超时设置仍然生效
+         */
+        public Builder httpClient(OkHttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        /**
+         * 使用共享的连接池
+         */
+        public Builder connectionPool(ConnectionPool connectionPool) {
+            this.connectionPool = connectionPool;
+            return this;
+        }
+
+        /**
+         * 使用共享的调度器，它的并发上限决定异步接口的最大并发请求数
+         */
+        public Builder dispatcher(Dispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+            return this;
+        }
+
+        /**
+         * 设置连接池保留的最大空闲连接数，应不小于并发传输数，否则并发传输结束后连接会被关闭、下次重新握手
+         */
+        public Builder maxIdleConnections(int maxIdleConnections) {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("最大空闲连接数不能小于0");
+            }
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * 设置空闲连接的保活时间
+         */
+        public Builder keepAlive(long duration, TimeUnit unit) {
+            if (duration <= 0) {
+                throw new IllegalArgumentException("保活时间必须大于0");
+            }
+            this.keepAliveMillis = unit.toMillis(duration);
+            return this;
+        }
+
+        /**
+         * 设置调度器同时执行的最大请求数
+         */
+        public Builder maxRequests(int maxRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("最大请求数必须大于0");
+            }
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * 设置调度器对同一主机同时执行的最大请求数
+         */
+        public Builder maxRequestsPerHost(int maxRequestsPerHost) {
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("最大请求数必须大于0");
+            }
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * 设置可用的协议，例如 HTTP_2 与 HTTP_1_1（HTTPS 下通过 ALPN 协商），或只用 HTTP_1_1
+         */
+        public Builder protocols(List<Protocol> protocols) {
+            this.protocols = new ArrayList<>(protocols);
+            return this;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder writeTimeout(long timeout, TimeUnit unit) {
+            this.writeTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 设置元数据操作（HEAD、列举、删除、分片上传的初始化与完成等）整个调用的超时，0 表示不限制
+         */
+        public Builder metadataTimeout(long timeout, TimeUnit unit) {
+            this.metadataTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 设置数据传输操作（上传、下载、分片、复制）单个请求整个调用的超时，0 表示不限制
+         */
+        public Builder transferTimeout(long timeout, TimeUnit unit) {
+            this.transferTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * 设置失败请求的重试与对冲策略，默认为 RetryPolicy.defaults()
+         */
+        public Builder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.none();
+            return this;
+        }
+
+        /**
+         * 设置该实例所有传输合计的限速（每秒字节数），0 表示不限速
+         */
+        public Builder rateLimit(long bytesPerSecond) {
+            this.rateLimit = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * 设置传输事件的监听器，默认不监听
+         */
+        public Builder listener(TransferListener listener) {
+            this.listener = listener != null ? listener : TransferListener.NOOP;
+            return this;
+        }
+
+        /**
+         * 设置分片上传是否支持断点续传，默认关闭，见 AliyunOSS.setResumableUploads
+         */
+        public Builder resumableUploads(boolean resumableUploads) {
+            this.resumableUploads = resumableUploads;
+            return this;
+        }
+
+        public AliyunOSS build() {
+            return new AliyunOSS(this);
+        }
+
+        private OkHttpClient buildClient(RetryInterceptor retryInterceptor) {
+            OkHttpClient.Builder builder = (httpClient != null ? httpClient : SHARED_CLIENT).newBuilder()
+                    .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .writeTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+            // 传入的客户端取自另一个实例时，去掉它的拦截器再按顺序重新加入，避免重试次数叠加：
+            // 重试在最外层，限速和统计作用于每一次尝试
+            builder.interceptors().removeIf(interceptor -> interceptor instanceof RetryInterceptor
+                    || interceptor instanceof ThrottlingInterceptor || interceptor instanceof MetricsInterceptor);
+            builder.addInterceptor(retryInterceptor);
+            builder.addInterceptor(new ThrottlingInterceptor());
+            builder.addInterceptor(new MetricsInterceptor());
+            if (connectionPool != null) {
+                builder.connectionPool(connectionPool);
+            } else if (maxIdleConnections >= 0 || keepAliveMillis > 0) {
+                builder.connectionPool(new ConnectionPool(
+                        maxIdleConnections >= 0 ? maxIdleConnections : DEFAULT_MAX_IDLE_CONNECTIONS,
+                        keepAliveMillis > 0 ? keepAliveMillis : DEFAULT_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS));
+            }
+            if (dispatcher != null) {
+                builder.dispatcher(dispatcher);
+            } else if (maxRequests > 0 || maxRequestsPerHost > 0) {
+                builder.dispatcher(newDispatcher(
+                        maxRequests > 0 ? maxRequests : DEFAULT_MAX_REQUESTS,
+                        maxRequestsPerHost > 0 ? maxRequestsPerHost : DEFAULT_MAX_CONNECTIONS_PER_HOST));
+            }
+            if (protocols != null) {
+                builder.protocols(protocols);
+            }
+            return builder.build();
+        }
+    }
+
+    private static Dispatcher newDispatcher(int maxRequests, int maxRequestsPerHost) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return dispatcher;
+    }
+
+    /**
+     * 本实例使用的 OkHttpClient，可以传给其他实例的构建器以共享连接池和调度器
+     */
+    public OkHttpClient getHttpClient() {
+        return client;
+    }
+
+    /**
+     * 创建元数据操作的调用，应用元数据操作的超时
+     */
+    Call newCall(Request request) {
+        Request observed = request.newBuilder().tag(TransferObserver.class, observer).build();
+        return withTimeout(client.newCall(observed), metadataTimeoutMillis);
+    }
+
+    /**
+     * 创建数据传输操作的调用，应用数据传输操作的超时
+     */
+    Call newTransferCall(Request request) {
+        return newTransferCall(request, null);
+    }
+
+    /**
+     * @param progress 请求收发的数据计入的文件传输进度，不计入时为null
+     */
+    Call newTransferCall(Request request, TransferObserver.Progress progress) {
+        Request limited = request.newBuilder()
+                .tag(ThrottlingInterceptor.TransferLimits.class, transferLimits)
+                .tag(TransferObserver.class, observer)
+                .tag(TransferObserver.Progress.class, progress)
                 .build();
+        return withTimeout(client.newCall(limited), transferTimeoutMillis);
+    }
+
+    /**
+     * 执行读取对象的GET请求。开启对冲时，请求超过近期响应延迟的分位数仍未返回响应头，
+     * 就在重试预算允许的情况下再发出一个相同的请求，以先返回的为准
+     */
+    Response executeRead(Request request) throws IOException {
+        return executeRead(request, null);
+    }
+
+    Response executeRead(Request request, TransferObserver.Progress progress) throws IOException {
+        RetryPolicy policy = retryInterceptor.getPolicy();
+        Call call = newTransferCall(request, progress);
+        if (!policy.isHedgedReads()) {
+            return call.execute();
+        }
+        long hedgeDelay = readLatency.percentile(policy.getHedgePercentile());
+        long start = System.nanoTime();
+        Response response = hedgeDelay < 0
+                ? call.execute()
+                : new HedgedCall(retryInterceptor).execute(call, hedgeDelay);
+        // 记录从发出原请求起的等待时间，而不是胜出请求自身的耗时，否则对冲会让分位数越来越低
+        readLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return response;
+    }
+
+    private static Call withTimeout(Call call, long timeoutMillis) {
+        if (timeoutMillis > 0) {
+            call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    /**
+     * 设置分片上传的分片大小，同时也是分段下载的每段大小
+     * @param partSize 分片大小（字节），不小于100KB
+     */
+    public void setPartSize(long partSize) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("分片大小不能小于 " + MIN_PART_SIZE + " 字节");
+        }
+        settings.partSize = partSize;
+    }
+
+    /**
+     * 设置自动切换为分片上传或分段下载的文件大小阈值
+     * @param multipartThreshold 阈值（字节）
+     */
+    public void setMultipartThreshold(long multipartThreshold) {
+        settings.multipartThreshold = multipartThreshold;
+    }
+
+    /**
+     * 设置并发传输的线程数
+     * @param parallelism 线程数
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("并发数必须大于0");
+        }
+        settings.parallelism = parallelism;
+    }
+
+    /**
+     * 设置分片上传是否支持断点续传。开启后会在源文件旁按目标键值写入断点记录（*.ossupload），
+     * 中断后重新上传同一文件到同一键值时从第一个缺失的分片继续。默认关闭，不在源文件目录中写入任何文件
+     * @param resumableUploads 是否支持断点续传
+     */
+    public void setResumableUploads(boolean resumableUploads) {
+        settings.resumableUploads = resumableUploads;
+    }
+
+    /**
+     * 设置目录传输时对同一主机同时传输的最大文件数，该实例（及其限速视图）同时进行的所有目录传输合计不超过这个值。
+     * 限制的是文件而不是HTTP连接：大文件本身按分片或分段以 parallelism 个请求并发传输，
+     * 对同一主机的并发请求数最多为该值乘以 parallelism
+     * @param maxTransfersPerHost 同一主机同时传输的最大文件数
+     */
+    public void setMaxTransfersPerHost(int maxTransfersPerHost) {
+        if (maxTransfersPerHost < 1) {
+            throw new IllegalArgumentException("最大传输数必须大于0");
+        }
+        hostSlots.setLimit(maxTransfersPerHost);
+    }
+
+    /**
+     * 调整该实例所有传输合计的限速，包括由它创建的限速视图，正在进行的传输随之调整
+     * @param bytesPerSecond 每秒字节数，0 表示不限速
+     */
+    public void setRateLimit(long bytesPerSecond) {
+        globalLimiter.setRate(bytesPerSecond);
+    }
+
+    /**
+     * 返回一个额外限速的视图，通过它发起的所有传输合计不超过 bytesPerSecond，同时仍受全局限速约束。
+     * 例如后台同步任务使用限速视图，前台请求使用原实例
+     * @param bytesPerSecond 每秒字节数
+     */
+    public AliyunOSS withRateLimit(long bytesPerSecond) {
+        return withRateLimit(new RateLimiter(bytesPerSecond));
+    }
+
+    /**
+     * 返回使用指定限速器的视图，保留该限速器即可在传输过程中调整速率，也可以让多个视图共用同一个额度
+     */
+    public AliyunOSS withRateLimit(RateLimiter limiter) {
+        return new AliyunOSS(this, limiter);
+    }
+
+    /**
+     * 设置传输事件的监听器，为null时取消监听。限速视图与原实例共用同一个监听器
+     */
+    public void setTransferListener(TransferListener listener) {
+        observer.setListener(listener);
+    }
+
+    /**
+     * 内置的传输统计，随传输实时更新
+     */
+    public TransferMetrics getMetrics() {
+        return observer.getMetrics();
+    }
+
+    /**
+     * 在跟踪进度的情况下执行一个文件的上传或下载。每次传输有自己的进度对象，
+     * 由任务作为请求标签传给发送数据的请求，同一键值上同时进行的传输互不影响
+     */
+    private <T> T withProgress(String key, long totalBytes, ProgressTask<T> task) throws IOException {
+        TransferObserver.Progress progress = observer.beginTransfer(key, totalBytes);
+        try {
+            return task.run(progress);
+        } finally {
+            observer.endTransfer(progress);
+        }
+    }
+
+    static ExecutorService newWorkerPool(int threads, String name) {
+        return Executors.newFixedThreadPool(Math.max(1, threads), daemonThreadFactory(name));
+    }
+
+    static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
-    private void printInfo(String message) {
+    void printInfo(String message) {
         if (verbose) {
             System.out.println("\u001B[32m" + message + "\u001B[0m");
         }
     }
 
-    private void printWarning(String message) {
+    void printWarning(String message) {
         if (verbose) {
             System.out.println("\u001B[33mWARNING: " + message + "\u001B[0m");
         }
     }
 
-    private void printError(String message) {
+    void printError(String message) {
         if (verbose) {
             System.err.println("\u001B[31mERROR: " + message + "\u001B[0m");
         }
@@ -71,13 +588,30 @@ public class AliyunOSS {
     }
 
     private String getAuthorizationHeader(String method, String contentType, String contentMD5, String date, String resource) {
+        return getAuthorizationHeader(method, contentType, contentMD5, date, resource, Headers.of());
+    }
+
+    private String getAuthorizationHeader(String method, String contentType, String contentMD5, String date, String resource,
+                                          Headers ossHeaders) {
         String canonicalizedResource = resource.isEmpty() ? "/" + bucketName + "/" : "/" + bucketName + "/" + resource;
+        // x-oss- 开头的请求头按小写名称排序后参与签名
+        TreeMap<String, String> canonicalizedHeaders = new TreeMap<>();
+        for (String name : ossHeaders.names()) {
+            String lowerName = name.toLowerCase(Locale.ROOT);
+            if (lowerName.startsWith("x-oss-")) {
+                canonicalizedHeaders.put(lowerName, ossHeaders.get(name).trim());
+            }
+        }
+        StringBuilder headerString = new StringBuilder();
+        for (Map.Entry<String, String> header : canonicalizedHeaders.entrySet()) {
+            headerString.append(header.getKey()).append(':').append(header.getValue()).append('\n');
+        }
         String stringToSign = String.join("\n",
                 method,
                 contentMD5,
                 contentType,
                 date,
-                canonicalizedResource
+                headerString + canonicalizedResource
         );
         String signature = sign(stringToSign);
         return "OSS " + apiKey + ":" + signature;
@@ -89,266 +623,1313 @@ public class AliyunOSS {
         return dateFormat.format(new Date());
     }
 
-    private String getBaseURL() {
+    int getParallelism() {
+        return settings.parallelism;
+    }
+
+    String getBaseURL() {
         return "https://" + bucketName + "." + endpoint;
     }
 
     public boolean uploadFile(String key, String filePath) throws IOException {
+        return uploadFile(key, filePath, true);
+    }
+
+    private boolean uploadFile(String key, String filePath, boolean saveHashCache) throws IOException {
         File file = new File(filePath);
         if (!file.exists()) {
             printWarning("文件不存在：" + filePath);
             return false;
         }
 
-        byte[] fileData = Files.readAllBytes(file.toPath());
-        
-        // 计算MD5并进行Base64编码
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] md5Bytes = md.digest(fileData);
-            String contentMD5 = java.util.Base64.getEncoder().encodeToString(md5Bytes);
-            
-            String date = getDate();
-            String authorization = getAuthorizationHeader(
-                    "PUT",
-                    "application/octet-stream",
-                    contentMD5,
-                    date,
-                    key
-            );
-
-            RequestBody requestBody = RequestBody.create(fileData, MediaType.parse("application/octet-stream"));
-            Request request = new Request.Builder()
-                    .url(getBaseURL() + "/" + key)
-                    .put(requestBody)
-                    .addHeader("Content-Type", "application/octet-stream")
-                    .addHeader("Content-MD5", contentMD5)
-                    .addHeader("Date", date)
-                    .addHeader("Authorization", authorization)
-                    .build();
-
-            try (Response response = client.newCall(request).execute()) {
-                if (response.isSuccessful()) {
-                    printInfo("成功上传文件：" + key);
-                    return true;
-                } else {
-                    String errorMessage = response.body() != null ? response.body().string() : "未知错误";
-                    printWarning("上传文件失败：" + errorMessage);
-                    return false;
-                }
+        Path path = file.toPath();
+        long fileSize = file.length();
+        LocalHashCache hashCache = settings.dedupHashCache;
+        String md5Hex = null;
+        if (hashCache != null) {
+            md5Hex = hashCache.md5Hex(path);
+            if (saveHashCache) {
+                saveHashCache(hashCache);
+            }
+            if (isRemoteIdentical(key, fileSize, md5Hex)) {
+                printInfo("文件内容未变化，跳过上传：" + key);
+                return true;
             }
-        } catch (NoSuchAlgorithmException e) {
-            printError("计算MD5失败：" + e.getMessage());
-            return false;
         }
+        return putFile(key, path, fileSize, md5Hex);
     }
 
-    public boolean uploadText(String key, String text) throws IOException {
-        byte[] textData = text.getBytes();
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] md5Bytes = md.digest(textData);
-            String contentMD5 = java.util.Base64.getEncoder().encodeToString(md5Bytes);
-            
-            String date = getDate();
-            String authorization = getAuthorizationHeader(
-                    "PUT",
-                    "text/plain",
-                    contentMD5,
-                    date,
-                    key
-            );
-
-            RequestBody requestBody = RequestBody.create(textData, MediaType.parse("text/plain"));
-            Request request = new Request.Builder()
-                    .url(getBaseURL() + "/" + key)
-                    .put(requestBody)
-                    .addHeader("Content-Type", "text/plain")
-                    .addHeader("Content-MD5", contentMD5)
-                    .addHeader("Date", date)
-                    .addHeader("Authorization", authorization)
-                    .build();
+    private boolean putFile(String key, Path path, long fileSize, String md5Hex) throws IOException {
+        if (fileSize >= settings.multipartThreshold) {
+            // 分片上传对象的ETag不是内容MD5，另存一份以便之后去重
+            Headers metadata = md5Hex != null ? Headers.of(CONTENT_MD5_META, md5Hex) : Headers.of();
+            return uploadFileMultipart(key, path, settings.partSize, settings.parallelism, metadata);
+        }
 
-            try (Response response = client.newCall(request).execute()) {
-                if (response.isSuccessful()) {
-                    printInfo("成功上传文本：" + key);
-                    return true;
-                } else {
-                    String errorMessage = response.body() != null ? response.body().string() : "未知错误";
-                    printWarning("上传文本失败：" + errorMessage);
-                    return false;
-                }
-            }
+        // 附带 Content-MD5，传输中损坏的数据由服务端拒绝，原有对象不会被覆盖；
+        // 去重缓存中已有MD5时直接使用，否则分块计算，不把整个文件读入内存
+        String contentMD5;
+        try {
+            byte[] md5Bytes = md5Hex != null ? LocalHashCache.fromHex(md5Hex) : FileRequestBody.md5(path, 0, fileSize);
+            contentMD5 = java.util.Base64.getEncoder().encodeToString(md5Bytes);
         } catch (NoSuchAlgorithmException e) {
             printError("计算MD5失败：" + e.getMessage());
             return false;
         }
+        RequestBody requestBody = new FileRequestBody(path, 0, fileSize, MediaType.parse("application/octet-stream"));
+        return withProgress(key, fileSize, progress -> putObject(key, requestBody, contentMD5, progress));
     }
 
-    public boolean downloadFile(String key) throws IOException {
-        return downloadFile(key, null);
+    boolean putObject(String key, RequestBody requestBody, String contentMD5) throws IOException {
+        return putObject(key, requestBody, contentMD5, null);
     }
 
-    public boolean downloadFile(String key, String rootDir) throws IOException {
-        String savePath = rootDir != null ? Paths.get(rootDir, key).toString() : key;
-
-        // 创建必要的目录
-        Path savePathObj = Paths.get(savePath);
-        Files.createDirectories(savePathObj.getParent());
+    private boolean putObject(String key, RequestBody requestBody, String contentMD5, TransferObserver.Progress progress) throws IOException {
+        Crc64RequestBody checkedBody = new Crc64RequestBody(requestBody);
+        try (Response response = newTransferCall(putObjectRequest(key, checkedBody, contentMD5), progress).execute()) {
+            return handlePutResponse(key, response, checkedBody);
+        }
+    }
 
+    private Request putObjectRequest(String key, Crc64RequestBody checkedBody, String contentMD5) {
         String date = getDate();
-        String authorization = getAuthorizationHeader("GET", "", "", date, key);
+        String authorization = getAuthorizationHeader(
+                "PUT",
+                "application/octet-stream",
+                contentMD5,
+                date,
+                key
+        );
 
-        Request request = new Request.Builder()
+        Request.Builder builder = new Request.Builder()
                 .url(getBaseURL() + "/" + key)
-                .get()
+                .put(checkedBody)
+                .addHeader("Content-Type", "application/octet-stream")
                 .addHeader("Date", date)
-                .addHeader("Authorization", authorization)
-                .build();
+                .addHeader("Authorization", authorization);
+        if (!contentMD5.isEmpty()) {
+            builder.addHeader("Content-MD5", contentMD5);
+        }
+        return builder.build();
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                Files.write(savePathObj, response.body().bytes());
-                printInfo("成功下载文件：" + key + " -> " + savePath);
-                return true;
-            } else {
-                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
-                printWarning("下载文件失败：" + errorMessage);
+    private boolean handlePutResponse(String key, Response response, Crc64RequestBody checkedBody) throws IOException {
+        if (response.isSuccessful()) {
+            invalidateCache(key);
+            if (!verifyCrc64(response.header(Crc64RequestBody.CRC64_HEADER), checkedBody.crc64(), key)) {
+                printWarning("上传文件CRC64校验失败：" + key);
+                discardCorruptObject(key);
                 return false;
             }
+            printInfo("成功上传文件：" + key);
+            return true;
+        } else {
+            String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+            printWarning("上传文件失败：" + errorMessage);
+            return false;
         }
     }
 
-    public List<String> listAllKeys() throws IOException {
-        return listKeysWithPrefix("");
-    }
-
-    public List<String> listKeysWithPrefix(String prefix) throws IOException {
-        String date = getDate();
-        String authorization = getAuthorizationHeader("GET", "", "", date, "");
-
-        HttpUrl.Builder urlBuilder = HttpUrl.parse(getBaseURL() + "/").newBuilder()
-                .addQueryParameter("max-keys", "1000");
-        if (!prefix.isEmpty()) {
-            urlBuilder.addQueryParameter("prefix", prefix);
+    /**
+     * 比较服务端返回的CRC64与本地计算的值。响应中没有 x-oss-hash-crc64ecma 时无法校验，
+     * 给出“未校验”的警告后放行，不当作校验通过静默处理
+     * @param what 用于提示的对象或分片描述
+     * @return 一致或无法校验时返回true，不一致时返回false
+     */
+    boolean verifyCrc64(String header, long crc, String what) {
+        if (header == null) {
+            printWarning("服务端未返回CRC64，未校验数据完整性：" + what);
+            return true;
         }
+        return CRC64.matches(header, crc);
+    }
 
-        Request request = new Request.Builder()
-                .url(urlBuilder.build())
-                .get()
-                .addHeader("Date", date)
-                .addHeader("Authorization", authorization)
-                .build();
-
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                String xmlString = response.body().string();
-                return extractKeysFromXML(xmlString);
+    /**
+     * 对象已提交后才发现CRC64不一致时删除它，避免损坏的数据留在原键值上被读取
+     */
+    private void discardCorruptObject(String key) throws IOException {
+        try (Response response = newCall(deleteRequest(key)).execute()) {
+            if (response.isSuccessful()) {
+                printWarning("已删除校验失败的对象：" + key);
             } else {
-                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
-                printWarning("获取文件列表失败：" + errorMessage);
-                return new ArrayList<>();
+                printError("删除校验失败的对象失败，请手动处理：" + key);
             }
         }
     }
 
-    private List<String> extractKeysFromXML(String xmlString) {
-        List<String> keys = new ArrayList<>();
-        int index = 0;
-        while (true) {
-            int keyStart = xmlString.indexOf("<Key>", index);
-            if (keyStart == -1) break;
-            int keyEnd = xmlString.indexOf("</Key>", keyStart);
-            if (keyEnd == -1) break;
-            String key = xmlString.substring(keyStart + 5, keyEnd);
-            keys.add(key);
-            index = keyEnd + 6;
-        }
-        return keys;
+    /**
+     * 启用去重上传：上传前比较本地文件MD5与远端对象的ETag或保存的MD5元数据，内容相同时跳过上传。
+     * 本地MD5按路径、大小与修改时间缓存，文件未变化时无需重新读取
+     * @param hashCacheFile MD5缓存文件路径
+     */
+    public void enableDeduplication(String hashCacheFile) {
+        settings.dedupHashCache = LocalHashCache.load(Paths.get(hashCacheFile));
     }
 
-    public boolean deleteFile(String key) throws IOException {
-        String date = getDate();
-        String authorization = getAuthorizationHeader("DELETE", "", "", date, key);
+    /**
+     * 关闭去重上传
+     */
+    public void disableDeduplication() {
+        settings.dedupHashCache = null;
+    }
 
-        Request request = new Request.Builder()
-                .url(getBaseURL() + "/" + key)
-                .delete()
-                .addHeader("Date", date)
-                .addHeader("Authorization", authorization)
-                .build();
+    /**
+     * 以内容寻址方式上传文件：键值由前缀与文件MD5组成，相同内容只会存储一份，已存在时不再上传
+     * @param prefix OSS前缀
+     * @param filePath 本地文件路径
+     * @return 文件的键值，上传失败时返回null
+     */
+    public String uploadFileContentAddressed(String prefix, String filePath) throws IOException {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            printWarning("文件不存在：" + filePath);
+            return null;
+        }
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful()) {
-                printInfo("成功删除文件：" + key);
-                return true;
-            } else {
-                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
-                printWarning("删除文件失败：" + errorMessage);
-                return false;
+        Path path = file.toPath();
+        long fileSize = file.length();
+        LocalHashCache hashCache = settings.dedupHashCache;
+        String md5Hex;
+        if (hashCache != null) {
+            md5Hex = hashCache.md5Hex(path);
+            saveHashCache(hashCache);
+        } else {
+            try {
+                md5Hex = LocalHashCache.toHex(FileRequestBody.md5(path, 0, fileSize));
+            } catch (NoSuchAlgorithmException e) {
+                printError("计算MD5失败：" + e.getMessage());
+                return null;
             }
         }
-    }
 
-    public boolean deleteFilesWithPrefix(String prefix) throws IOException {
-        List<String> keys = listKeysWithPrefix(prefix);
-        boolean success = true;
-        for (String key : keys) {
-            if (!deleteFile(key)) {
-                success = false;
-            }
+        String key = prefix + md5Hex.toLowerCase(Locale.ROOT);
+        ObjectMetadata metadata = getObjectMetadata(key);
+        if (metadata != null && metadata.getContentLength() == fileSize) {
+            printInfo("内容已存在，跳过上传：" + key);
+            return key;
         }
-        return success;
+        return putFile(key, path, fileSize, md5Hex) ? key : null;
     }
 
-    public boolean uploadDirectory(String localPath, String prefix) throws IOException {
+    private boolean isRemoteIdentical(String key, long fileSize, String md5Hex) throws IOException {
+        ObjectMetadata metadata = getObjectMetadata(key);
+        if (metadata == null || metadata.getContentLength() != fileSize) {
+            return false;
+        }
+        String eTag = metadata.getETag() != null ? metadata.getETag().replace("\"", "") : "";
+        if (DirectorySync.isPlainMD5(eTag)) {
+            return eTag.equalsIgnoreCase(md5Hex);
+        }
+        // 分片上传对象的ETag不是内容MD5，比较上传时保存的MD5元数据
+        return md5Hex.equalsIgnoreCase(metadata.getHeader(CONTENT_MD5_META));
+    }
+
+    private void saveHashCache(LocalHashCache hashCache) {
+        try {
+            hashCache.save();
+        } catch (IOException e) {
+            printWarning("保存MD5缓存失败：" + e.getMessage());
+        }
+    }
+
+    public boolean uploadFileMultipart(String key, String filePath) throws IOException {
+        return uploadFileMultipart(key, filePath, settings.partSize, settings.parallelism);
+    }
+
+    /**
+     * 以分片方式并发上传文件
+     * @param key OSS键值
+     * @param filePath 本地文件路径
+     * @param partSize 分片大小（字节）
+     * @param parallelism 并发上传的分片数
+     * @return 是否上传成功
+     */
+    public boolean uploadFileMultipart(String key, String filePath, long partSize, int parallelism) throws IOException {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            printWarning("文件不存在：" + filePath);
+            return false;
+        }
+        return uploadFileMultipart(key, file.toPath(), partSize, parallelism, Headers.of());
+    }
+
+    private boolean uploadFileMultipart(String key, Path path, long partSize, int parallelism, Headers metadata) throws IOException {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("分片大小不能小于 " + MIN_PART_SIZE + " 字节");
+        }
+
+        boolean success = withProgress(key, Files.size(path), progress ->
+                new MultipartUploader(this, key, path, partSize, Math.max(1, parallelism), settings.resumableUploads, metadata, progress).upload());
+        if (success) {
+            printInfo("成功分片上传文件：" + key);
+        } else {
+            printWarning("分片上传文件失败：" + key);
+        }
+        return success;
+    }
+
+    String initiateMultipartUpload(String key) throws IOException {
+        return initiateMultipartUpload(key, Headers.of());
+    }
+
+    String initiateMultipartUpload(String key, Headers ossHeaders) throws IOException {
+        String contentType = ossHeaders.get("Content-Type");
+        String date = getDate();
+        String authorization = getAuthorizationHeader("POST", contentType != null ? contentType : "", "", date,
+                key + "?uploads", ossHeaders);
+
+        Request request = new Request.Builder()
+                .url(getBaseURL() + "/" + key + "?uploads")
+                .post(RequestBody.create(new byte[0], null))
+                .headers(ossHeaders)
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+
+        try (Response response = newCall(request).execute()) {
+            String body = response.body() != null ? response.body().string() : "";
+            if (response.isSuccessful()) {
+                String uploadId = extractXmlValue(body, "UploadId");
+                if (uploadId != null) {
+                    return uploadId;
+                }
+            }
+            printWarning("初始化分片上传失败：" + (body.isEmpty() ? "未知错误" : body));
+            return null;
+        }
+    }
+
+    /**
+     * 上传一个分片，发送时同步计算CRC64并与服务端返回值比较
+     * @return 包含ETag与CRC64的分片信息，失败或校验不一致时返回null
+     */
+    PartETag uploadPart(String key, String uploadId, int partNumber, RequestBody body, String contentMD5) throws IOException {
+        return uploadPart(key, uploadId, partNumber, body, contentMD5, null);
+    }
+
+    PartETag uploadPart(String key, String uploadId, int partNumber, RequestBody body, String contentMD5,
+                        TransferObserver.Progress progress) throws IOException {
+        String subResource = "?partNumber=" + partNumber + "&uploadId=" + uploadId;
+        String date = getDate();
+        String authorization = getAuthorizationHeader("PUT", "application/octet-stream", contentMD5, date, key + subResource);
+
+        Crc64RequestBody checkedBody = new Crc64RequestBody(body);
+        Request.Builder builder = new Request.Builder()
+                .url(getBaseURL() + "/" + key + subResource)
+                .put(checkedBody)
+                .addHeader("Content-Type", "application/octet-stream")
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization);
+        if (!contentMD5.isEmpty()) {
+            builder.addHeader("Content-MD5", contentMD5);
+        }
+
+        try (Response response = newTransferCall(builder.build(), progress).execute()) {
+            if (response.isSuccessful() && response.header("ETag") != null) {
+                if (!verifyCrc64(response.header(Crc64RequestBody.CRC64_HEADER), checkedBody.crc64(), key + " 分片 " + partNumber)) {
+                    printWarning("分片 " + partNumber + " CRC64校验失败");
+                    return null;
+                }
+                return new PartETag(partNumber, response.header("ETag"), checkedBody.crc64());
+            } else {
+                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+                printWarning("上传分片 " + partNumber + " 失败：" + errorMessage);
+                return null;
+            }
+        }
+    }
+
+    boolean completeMultipartUpload(String key, String uploadId, List<PartETag> parts) throws IOException {
+        return completeMultipartUpload(key, uploadId, parts, null);
+    }
+
+    /**
+     * 完成分片上传
+     * @param expectedCrc64 由各分片CRC合并得到的整个对象的CRC64，为null时不校验
+     */
+    boolean completeMultipartUpload(String key, String uploadId, List<PartETag> parts, Long expectedCrc64) throws IOException {
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+        for (PartETag part : parts) {
+            xml.append("<Part><PartNumber>").append(part.getPartNumber()).append("</PartNumber>")
+                    .append("<ETag>").append(part.getETag()).append("</ETag></Part>");
+        }
+        xml.append("</CompleteMultipartUpload>");
+        byte[] xmlData = xml.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+
+        String subResource = "?uploadId=" + uploadId;
+        String date = getDate();
+        String authorization = getAuthorizationHeader("POST", "application/xml", "", date, key + subResource);
+
+        Request request = new Request.Builder()
+                .url(getBaseURL() + "/" + key + subResource)
+                .post(RequestBody.create(xmlData, MediaType.parse("application/xml")))
+                .addHeader("Content-Type", "application/xml")
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+
+        try (Response response = newCall(request).execute()) {
+            if (response.isSuccessful()) {
+                invalidateCache(key);
+                if (expectedCrc64 != null && !verifyCrc64(response.header(Crc64RequestBody.CRC64_HEADER), expectedCrc64, key)) {
+                    printWarning("分片上传文件CRC64校验失败：" + key);
+                    discardCorruptObject(key);
+                    return false;
+                }
+                return true;
+            } else {
+                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+                printWarning("完成分片上传失败：" + errorMessage);
+                return false;
+            }
+        }
+    }
+
+    boolean multipartUploadExists(String key, String uploadId) throws IOException {
+        String subResource = "?uploadId=" + uploadId;
+        String date = getDate();
+        String authorization = getAuthorizationHeader("GET", "", "", date, key + subResource);
+
+        Request request = new Request.Builder()
+                .url(getBaseURL() + "/" + key + subResource + "&max-parts=1")
+                .get()
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+
+        try (Response response = newCall(request).execute()) {
+            return response.isSuccessful();
+        }
+    }
+
+    boolean abortMultipartUpload(String key, String uploadId) throws IOException {
+        String subResource = "?uploadId=" + uploadId;
+        String date = getDate();
+        String authorization = getAuthorizationHeader("DELETE", "", "", date, key + subResource);
+
+        Request request = new Request.Builder()
+                .url(getBaseURL() + "/" + key + subResource)
+                .delete()
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+
+        try (Response response = newCall(request).execute()) {
+            if (response.isSuccessful()) {
+                return true;
+            } else {
+                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+                printWarning("取消分片上传失败：" + errorMessage);
+                return false;
+            }
+        }
+    }
+
+    public boolean uploadText(String key, String text) throws IOException {
+        byte[] textData = text.getBytes();
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] md5Bytes = md.digest(textData);
+            String contentMD5 = java.util.Base64.getEncoder().encodeToString(md5Bytes);
+            
+            String date = getDate();
+            String authorization = getAuthorizationHeader(
+                    "PUT",
+                    "text/plain",
+                    contentMD5,
+                    date,
+                    key
+            );
+
+            RequestBody requestBody = RequestBody.create(textData, MediaType.parse("text/plain"));
+            Request request = new Request.Builder()
+                    .url(getBaseURL() + "/" + key)
+                    .put(requestBody)
+                    .addHeader("Content-Type", "text/plain")
+                    .addHeader("Content-MD5", contentMD5)
+                    .addHeader("Date", date)
+                    .addHeader("Authorization", authorization)
+                    .build();
+
+            try (Response response = newTransferCall(request).execute()) {
+                if (response.isSuccessful()) {
+                    invalidateCache(key);
+                    printInfo("成功上传文本：" + key);
+                    return true;
+                } else {
+                    String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+                    printWarning("上传文本失败：" + errorMessage);
+                    return false;
+                }
+            }
+        } catch (NoSuchAlgorithmException e) {
+            printError("计算MD5失败：" + e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean downloadFile(String key) throws IOException {
+        return downloadFile(key, null);
+    }
+
+    public boolean downloadFile(String key, String rootDir) throws IOException {
+        Path savePath = rootDir != null ? Paths.get(rootDir, key) : Paths.get(key);
+        ObjectCache cache = settings.objectCache;
+        if (cache != null) {
+            try {
+                return downloadFromCache(cache, key, savePath);
+            } catch (ObjectCache.UncacheableException e) {
+                // 超过缓存容量或刚被淘汰的对象按常规方式下载
+            }
+        }
+        return downloadToPath(key, savePath, getObjectMetadata(key));
+    }
+
+    private boolean downloadFromCache(ObjectCache cache, String key, Path savePath) throws IOException {
+        ObjectCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            printWarning("下载文件失败：文件不存在 " + key);
+            return false;
+        }
+        if (savePath.getParent() != null) {
+            Files.createDirectories(savePath.getParent());
+        }
+        Path partPath = Paths.get(savePath + RangedDownloader.PART_SUFFIX);
+        try (InputStream in = cache.open(entry)) {
+            Files.copy(in, partPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        CheckpointFiles.moveReplacing(partPath, savePath);
+        printInfo("成功下载文件：" + key + " -> " + savePath);
+        return true;
+    }
+
+    boolean downloadToPath(String key, Path savePathObj, ObjectMetadata metadata) throws IOException {
+        // 创建必要的目录
+        if (savePathObj.getParent() != null) {
+            Files.createDirectories(savePathObj.getParent());
+        }
+
+        if (metadata != null && metadata.getContentLength() >= settings.multipartThreshold) {
+            return downloadFileParallel(key, metadata, savePathObj, settings.partSize, settings.parallelism);
+        }
+
+        return withProgress(key, metadata != null ? metadata.getContentLength() : -1, progress -> {
+            try (Response response = executeRead(getRequest(key, Headers.of()), progress)) {
+                return saveDownload(key, savePathObj, response);
+            }
+        });
+    }
+
+    private boolean saveDownload(String key, Path savePathObj, Response response) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            // 流式写入 .part 临时文件，完成后再替换目标文件，中断时不会留下截断的文件
+            Path partPath = Paths.get(savePathObj + RangedDownloader.PART_SUFFIX);
+            CRC64 crc = new CRC64();
+            try (InputStream in = new CheckedInputStream(response.body().byteStream(), crc)) {
+                Files.copy(in, partPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (!verifyCrc64(response.header(Crc64RequestBody.CRC64_HEADER), crc.getValue(), key)) {
+                Files.deleteIfExists(partPath);
+                printWarning("下载文件CRC64校验失败：" + key);
+                return false;
+            }
+            CheckpointFiles.moveReplacing(partPath, savePathObj);
+            printInfo("成功下载文件：" + key + " -> " + savePathObj);
+            return true;
+        } else {
+            String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+            printWarning("下载文件失败：" + errorMessage);
+            return false;
+        }
+    }
+
+    /**
+     * 以多个Range请求并发下载文件，各段直接写入预先分配大小的文件
+     * @param key OSS键值
+     * @param rootDir 保存的根目录，为null时保存到当前目录
+     * @param rangeSize 每段大小（字节）
+     * @param parallelism 并发连接数
+     * @return 是否下载成功
+     */
+    public boolean downloadFileParallel(String key, String rootDir, long rangeSize, int parallelism) throws IOException {
+        Path savePath = rootDir != null ? Paths.get(rootDir, key) : Paths.get(key);
+        if (savePath.getParent() != null) {
+            Files.createDirectories(savePath.getParent());
+        }
+        ObjectMetadata metadata = getObjectMetadata(key);
+        if (metadata == null) {
+            printWarning("下载文件失败：无法获取文件信息 " + key);
+            return false;
+        }
+        return downloadFileParallel(key, metadata, savePath, rangeSize, parallelism);
+    }
+
+    private boolean downloadFileParallel(String key, ObjectMetadata metadata, Path savePath, long rangeSize, int parallelism) throws IOException {
+        if (rangeSize <= 0) {
+            throw new IllegalArgumentException("分段大小必须大于0");
+        }
+        boolean success = withProgress(key, metadata.getContentLength(), progress ->
+                new RangedDownloader(this, key, metadata, savePath, rangeSize, Math.max(1, parallelism), progress).download());
+        if (success) {
+            printInfo("成功分段下载文件：" + key + " -> " + savePath);
+        } else {
+            printWarning("分段下载文件失败：" + key);
+        }
+        return success;
+    }
+
+    /**
+     * 下载一个分段并按偏移写入文件，写入的同时计算该分段的CRC64
+     * @param crc 分段的CRC64，由调用方创建
+     * @return 是否下载成功
+     */
+    boolean downloadRange(String key, long start, long end, String eTag, FileChannel channel, CRC64 crc,
+                          TransferObserver.Progress progress) throws IOException {
+        String date = getDate();
+        String authorization = getAuthorizationHeader("GET", "", "", date, key);
+
+        Request.Builder builder = new Request.Builder()
+                .url(getBaseURL() + "/" + key)
+                .get()
+                .addHeader("Range", "bytes=" + start + "-" + end)
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization);
+        if (eTag != null) {
+            builder.addHeader("If-Match", eTag);
+        }
+
+        try (Response response = executeRead(builder.build(), progress)) {
+            if (response.code() == 412) {
+                throw new ObjectChangedException(key);
+            }
+            if (response.code() != 206 || response.body() == null) {
+                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+                printWarning("下载分段 " + start + "-" + end + " 失败：" + errorMessage);
+                return false;
+            }
+            // 按偏移直接写入目标文件，每段使用自己的缓冲区
+            BufferedSource source = response.body().source();
+            ByteBuffer buffer = ByteBuffer.allocate(FileRequestBody.BUFFER_SIZE);
+            long position = start;
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                buffer.clear();
+            }
+            if (position != end + 1) {
+                printWarning("下载分段 " + start + "-" + end + " 不完整");
+                return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 获取对象元数据（大小、ETag、最后修改时间等），只发送HEAD请求
+     * @param key OSS键值
+     * @return 对象元数据，对象不存在时返回null
+     */
+    public ObjectMetadata getObjectMetadata(String key) throws IOException {
+        try (Response response = newCall(headRequest(key)).execute()) {
+            return handleHeadResponse(response);
+        }
+    }
+
+    private Request headRequest(String key) {
+        String date = getDate();
+        String authorization = getAuthorizationHeader("HEAD", "", "", date, key);
+
+        return new Request.Builder()
+                .url(getBaseURL() + "/" + key)
+                .head()
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+    }
+
+    private ObjectMetadata handleHeadResponse(Response response) {
+        if (response.isSuccessful()) {
+            String contentLength = response.header("Content-Length");
+            return new ObjectMetadata(
+                    contentLength != null ? Long.parseLong(contentLength) : -1,
+                    response.header("ETag"),
+                    response.headers().getDate("Last-Modified"),
+                    response.header("Content-Type"),
+                    response.headers());
+        } else {
+            if (response.code() != 404) {
+                printWarning("获取文件信息失败：HTTP " + response.code());
+            }
+            return null;
+        }
+    }
+
+    public List<String> listAllKeys() throws IOException {
+        return listKeysWithPrefix("");
+    }
+
+    public List<String> listKeysWithPrefix(String prefix) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try {
+            iterateKeysWithPrefix(prefix).forEachRemaining(keys::add);
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof ListObjectsFailedException) {
+                // 服务端返回错误时失败原因已在列举时输出，与原有行为保持一致返回空列表
+                return new ArrayList<>();
+            }
+            // 网络错误照常抛出，调用方可以区分“前缀下没有文件”和“列举失败”
+            throw e.getCause();
+        }
+        return keys;
+    }
+
+    /**
+     * 惰性列举指定前缀下的所有键值，自动翻页并预取下一页，内存中只保留约一页数据
+     * @param prefix 前缀
+     * @return 键值迭代器，请求失败时抛出 UncheckedIOException
+     */
+    public Iterator<String> iterateKeysWithPrefix(String prefix) {
+        Iterator<ObjectSummary> objects = iterateObjectsWithPrefix(prefix);
+        return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return objects.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return objects.next().getKey();
+            }
+        };
+    }
+
+    /**
+     * 以 Stream 形式惰性列举指定前缀下的所有键值
+     * @param prefix 前缀
+     * @return 键值流
+     */
+    public Stream<String> streamKeysWithPrefix(String prefix) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterateKeysWithPrefix(prefix), Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    /**
+     * 惰性列举指定前缀下的所有对象，包含大小、ETag、最后修改时间与存储类型，无需逐个发送HEAD请求
+     * @param prefix 前缀
+     * @return 对象信息迭代器，请求失败时抛出 UncheckedIOException
+     */
+    public Iterator<ObjectSummary> iterateObjectsWithPrefix(String prefix) {
+        return new ObjectListingIterator(this, prefix, backgroundExecutor);
+    }
+
+    /**
+     * 以 Stream 形式惰性列举指定前缀下的所有对象
+     * @param prefix 前缀
+     * @return 对象信息流
+     */
+    public Stream<ObjectSummary> streamObjectsWithPrefix(String prefix) {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterateObjectsWithPrefix(prefix), Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    /**
+     * 分片并发列举指定前缀下的所有对象，结果按键值有序。
+     * 适合对象数量巨大的前缀或整个存储桶的全量盘点，耗时随并发数而非往返延迟增长
+     * @param prefix 前缀，空字符串表示整个存储桶
+     * @param parallelism 并发列举的分片数
+     * @return 有序的对象信息流，使用完毕后应关闭以释放后台线程
+     */
+    public Stream<ObjectSummary> streamObjectsParallel(String prefix, int parallelism) throws IOException {
+        ParallelObjectLister lister = ParallelObjectLister.open(this, prefix, parallelism, PARALLEL_LIST_BUFFERED_PAGES);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(lister, Spliterator.ORDERED | Spliterator.NONNULL),
+                false).onClose(lister::close);
+    }
+
+    /**
+     * 打开（必要时构建）存储桶对象元数据的本地索引，之后的前缀查询、目录视图与容量统计都在本地完成
+     * @param indexFile 索引文件路径
+     * @param maxStalenessMillis 最大过期时间（毫秒），超过后下一次查询自动全量刷新
+     * @return 本地索引
+     */
+    public BucketIndex openIndex(String indexFile, long maxStalenessMillis) throws IOException {
+        return BucketIndex.open(this, Paths.get(indexFile), maxStalenessMillis);
+    }
+
+    ObjectListing listObjectsPage(String prefix, String marker, String delimiter) throws IOException {
+        return listObjectsPage(prefix, marker, delimiter, LIST_PAGE_SIZE);
+    }
+
+    ObjectListing listObjectsPage(String prefix, String marker, String delimiter, int maxKeys) throws IOException {
+        try (Response response = newCall(listObjectsRequest(prefix, marker, delimiter, maxKeys)).execute()) {
+            return handleListResponse(response);
+        }
+    }
+
+    private Request listObjectsRequest(String prefix, String marker, String delimiter, int maxKeys) {
+        String date = getDate();
+        String authorization = getAuthorizationHeader("GET", "", "", date, "");
+
+        HttpUrl.Builder urlBuilder = HttpUrl.parse(getBaseURL() + "/").newBuilder()
+                .addQueryParameter("max-keys", String.valueOf(maxKeys));
+        if (!prefix.isEmpty()) {
+            urlBuilder.addQueryParameter("prefix", prefix);
+        }
+        if (!marker.isEmpty()) {
+            urlBuilder.addQueryParameter("marker", marker);
+        }
+        if (delimiter != null) {
+            urlBuilder.addQueryParameter("delimiter", delimiter);
+        }
+
+        return new Request.Builder()
+                .url(urlBuilder.build())
+                .get()
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+    }
+
+    private ObjectListing handleListResponse(Response response) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            // 直接从响应流解析，不再把整页XML读成字符串
+            return ListObjectsParser.parse(response.body().byteStream());
+        } else {
+            String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+            printWarning("获取文件列表失败：" + errorMessage);
+            throw new ListObjectsFailedException(response.code());
+        }
+    }
+
+    private static String extractXmlValue(String xmlString, String tag) {
+        int start = xmlString.indexOf("<" + tag + ">");
+        if (start == -1) return null;
+        int end = xmlString.indexOf("</" + tag + ">", start);
+        if (end == -1) return null;
+        return xmlString.substring(start + tag.length() + 2, end);
+    }
+
+    public boolean deleteFile(String key) throws IOException {
+        try (Response response = newCall(deleteRequest(key)).execute()) {
+            return handleDeleteResponse(key, response);
+        }
+    }
+
+    private Request deleteRequest(String key) {
+        String date = getDate();
+        String authorization = getAuthorizationHeader("DELETE", "", "", date, key);
+
+        return new Request.Builder()
+                .url(getBaseURL() + "/" + key)
+                .delete()
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+    }
+
+    private boolean handleDeleteResponse(String key, Response response) throws IOException {
+        if (response.isSuccessful()) {
+            invalidateCache(key);
+            printInfo("成功删除文件：" + key);
+            return true;
+        } else {
+            String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+            printWarning("删除文件失败：" + errorMessage);
+            return false;
+        }
+    }
+
+    public boolean deleteFilesWithPrefix(String prefix) throws IOException {
+        // 列举与删除流水线进行：每凑满一批就提交删除，列举在后台继续翻页
+        try {
+            return deleteKeysInBatches(iterateKeysWithPrefix(prefix));
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof ListObjectsFailedException) {
+                // 服务端返回错误时失败原因已在列举时输出
+                return false;
+            }
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 批量删除文件，每个 DeleteObjects 请求最多包含1000个键值，多个批次并发执行
+     * @param keys 要删除的键值
+     * @return 是否全部删除成功
+     */
+    public boolean deleteObjects(Collection<String> keys) throws IOException {
+        return deleteKeysInBatches(keys.iterator());
+    }
+
+    private boolean deleteKeysInBatches(Iterator<String> keys) throws IOException {
+        ExecutorService pool = newWorkerPool(settings.parallelism, "oss-batch-delete");
+        // 限制同时在途的批次数，避免列举远快于删除时积压大量批次
+        Semaphore inFlight = new Semaphore(settings.parallelism);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        try {
+            while (keys.hasNext()) {
+                List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+                while (keys.hasNext() && batch.size() < DELETE_BATCH_SIZE) {
+                    batch.add(keys.next());
+                }
+                inFlight.acquire();
+                futures.add(pool.submit(() -> {
+                    try {
+                        return deleteBatch(batch);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            boolean success = true;
+            for (Future<Boolean> future : futures) {
+                if (!future.get()) {
+                    success = false;
+                }
+            }
+            return success;
+        } catch (ExecutionException e) {
+            printError("批量删除失败：" + e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("批量删除被中断");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private boolean deleteBatch(List<String> keys) throws IOException, NoSuchAlgorithmException {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Delete><Quiet>true</Quiet>");
+        for (String key : keys) {
+            xml.append("<Object><Key>").append(escapeXml(key)).append("</Key></Object>");
+        }
+        xml.append("</Delete>");
+        byte[] xmlData = xml.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        String contentMD5 = java.util.Base64.getEncoder().encodeToString(MessageDigest.getInstance("MD5").digest(xmlData));
+
+        String date = getDate();
+        String authorization = getAuthorizationHeader("POST", "application/xml", contentMD5, date, "?delete");
+
+        Request request = new Request.Builder()
+                .url(getBaseURL() + "/?delete")
+                .post(RequestBody.create(xmlData, MediaType.parse("application/xml")))
+                .addHeader("Content-Type", "application/xml")
+                .addHeader("Content-MD5", contentMD5)
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+
+        try (Response response = newCall(request).execute()) {
+            if (response.isSuccessful()) {
+                for (String key : keys) {
+                    invalidateCache(key);
+                }
+                printInfo("成功批量删除 " + keys.size() + " 个文件");
+                return true;
+            } else {
+                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+                printWarning("批量删除文件失败：" + errorMessage);
+                return false;
+            }
+        }
+    }
+
+    static String escapeXml(String text) {
+        StringBuilder escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                case '\'':
+                    escaped.append("&apos;");
+                    break;
+                default:
+                    escaped.append(c);
+                    break;
+            }
+        }
+        return escaped.toString();
+    }
+
+    public boolean uploadDirectory(String localPath, String prefix) throws IOException {
+        return uploadDirectory(localPath, prefix, settings.parallelism);
+    }
+
+    /**
+     * 并发上传目录：边遍历边提交到有界队列，小文件优先
+     * @param localPath 本地目录
+     * @param prefix OSS前缀
+     * @param parallelism 并发上传的文件数
+     * @return 是否全部上传成功
+     */
+    public boolean uploadDirectory(String localPath, String prefix, int parallelism) throws IOException {
+        File dir = new File(localPath);
+        if (!dir.exists() || !dir.isDirectory()) {
+            printWarning("无法访问目录：" + localPath);
+            return false;
+        }
+
+        Path root = dir.toPath();
+        try (TransferScheduler scheduler = newTransferScheduler(parallelism, "oss-upload-directory");
+             Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> files = paths.filter(Files::isRegularFile).filter(file -> !isCheckpointFile(file)).iterator();
+            while (files.hasNext()) {
+                Path file = files.next();
+                String relativePath = root.relativize(file).toString();
+                String key = prefix.isEmpty() ? relativePath : Paths.get(prefix, relativePath).toString();
+                String filePath = file.toAbsolutePath().toString();
+                scheduler.submit(getBaseURL(), Files.size(file), () -> uploadFile(key, filePath, false));
+            }
+            boolean success = scheduler.awaitCompletion();
+            LocalHashCache hashCache = settings.dedupHashCache;
+            if (hashCache != null) {
+                saveHashCache(hashCache);
+            }
+            return success;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("上传目录被中断：" + localPath);
+        }
+    }
+
+    /**
+     * 增量同步本地目录到OSS：只上传新增或内容变化的文件（比较大小、ETag/MD5与修改时间）
+     * @param localPath 本地目录
+     * @param prefix OSS前缀
+     * @param deleteExtra 是否删除OSS上本地已不存在的文件
+     * @return 是否全部同步成功
+     */
+    public boolean syncUpload(String localPath, String prefix, boolean deleteExtra) throws IOException {
         File dir = new File(localPath);
         if (!dir.exists() || !dir.isDirectory()) {
             printWarning("无法访问目录：" + localPath);
             return false;
         }
+        return new DirectorySync(this, dir.toPath(), prefix, settings.parallelism).syncUpload(deleteExtra);
+    }
+
+    /**
+     * 增量同步OSS前缀到本地目录：只下载新增或内容变化的文件（比较大小、ETag/MD5与修改时间）
+     * @param prefix OSS前缀
+     * @param localPath 本地目录
+     * @param deleteExtra 是否删除本地在OSS上已不存在的文件
+     * @return 是否全部同步成功
+     */
+    public boolean syncDownload(String prefix, String localPath, boolean deleteExtra) throws IOException {
+        return new DirectorySync(this, Paths.get(localPath), prefix, settings.parallelism).syncDownload(deleteExtra);
+    }
+
+    public boolean downloadDirectory(String prefix, String localPath) throws IOException {
+        return downloadDirectory(prefix, localPath, settings.parallelism);
+    }
+
+    /**
+     * 并发下载目录：边列举边提交到有界队列，小文件优先
+     * @param prefix OSS前缀
+     * @param localPath 本地目录
+     * @param parallelism 并发下载的文件数
+     * @return 是否全部下载成功
+     */
+    public boolean downloadDirectory(String prefix, String localPath, int parallelism) throws IOException {
+        return downloadWithPrefix(prefix, localPath, parallelism, true);
+    }
+
+    private boolean downloadWithPrefix(String prefix, String rootDir, int parallelism, boolean requireFiles) throws IOException {
+        int submitted = 0;
+        try (TransferScheduler scheduler = newTransferScheduler(parallelism, "oss-download-directory")) {
+            Iterator<ObjectSummary> objects = iterateObjectsWithPrefix(prefix);
+            while (objects.hasNext()) {
+                ObjectSummary summary = objects.next();
+                if (summary.getKey().endsWith("/")) {
+                    // 目录占位对象，无需下载
+                    continue;
+                }
+                Path savePath = rootDir != null ? Paths.get(rootDir, summary.getKey()) : Paths.get(summary.getKey());
+                // 列举结果已包含大小和ETag，无需再为每个文件发送HEAD请求
+                ObjectMetadata metadata = ObjectMetadata.fromSummary(summary);
+                scheduler.submit(getBaseURL(), summary.getSize(), () -> downloadToPath(summary.getKey(), savePath, metadata));
+                submitted++;
+            }
+            boolean success = scheduler.awaitCompletion();
+            if (submitted == 0 && requireFiles) {
+                printWarning("未找到前缀为 " + prefix + " 的文件");
+                return false;
+            }
+            return success;
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof ListObjectsFailedException) {
+                // 服务端返回错误时失败原因已在列举时输出
+                return false;
+            }
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("下载被中断：" + prefix);
+        }
+    }
+
+    private static boolean isCheckpointFile(Path file) {
+        // 跳过分片上传过程中写在源文件旁的断点记录
+        String name = file.getFileName().toString();
+        return name.endsWith(UploadCheckpoint.SUFFIX) || name.endsWith(UploadCheckpoint.SUFFIX + ".tmp")
+                || name.equals(DirectorySync.MANIFEST_NAME);
+    }
+
+    /**
+     * 在OSS内部复制文件，数据不经过本机。超过1GB的文件使用 UploadPartCopy 并发复制各个分片。
+     * 复制请求带源文件的ETag条件，源文件在HEAD之后被修改时抛出 IOException 而不是复制新内容
+     * @param sourceKey 源键值
+     * @param targetKey 目标键值
+     * @return 是否复制成功
+     */
+    public boolean copyObject(String sourceKey, String targetKey) throws IOException {
+        ObjectMetadata metadata = getObjectMetadata(sourceKey);
+        if (metadata == null) {
+            printWarning("复制文件失败：源文件不存在 " + sourceKey);
+            return false;
+        }
+        return copyObject(sourceKey, targetKey, metadata.getContentLength(), metadata.getETag(), metadata);
+    }
+
+    /**
+     * @param metadata 源文件的元数据，为null时（例如来自列举结果）分片复制前先用HEAD请求获取
+     */
+    private boolean copyObject(String sourceKey, String targetKey, long size, String eTag, ObjectMetadata metadata) throws IOException {
+        if (size > MAX_COPY_OBJECT_SIZE) {
+            if (metadata == null) {
+                metadata = getObjectMetadata(sourceKey);
+                if (metadata == null) {
+                    printWarning("复制文件失败：源文件不存在 " + sourceKey);
+                    return false;
+                }
+            }
+            boolean success = new MultipartCopier(this, sourceKey, targetKey, size, eTag, settings.parallelism,
+                    metadata.copyableHeaders()).copy();
+            if (success) {
+                printInfo("成功分片复制文件：" + sourceKey + " -> " + targetKey);
+            } else {
+                printWarning("分片复制文件失败：" + sourceKey + " -> " + targetKey);
+            }
+            return success;
+        }
+
+        Headers.Builder headersBuilder = new Headers.Builder().add("x-oss-copy-source", copySource(sourceKey));
+        if (eTag != null) {
+            headersBuilder.add("x-oss-copy-source-if-match", eTag);
+        }
+        Headers ossHeaders = headersBuilder.build();
+        String date = getDate();
+        String authorization = getAuthorizationHeader("PUT", "", "", date, targetKey, ossHeaders);
 
-        boolean success = true;
-        List<File> files = Files.walk(dir.toPath())
-                .filter(Files::isRegularFile)
-                .map(Path::toFile)
-                .collect(Collectors.toList());
+        Request request = new Request.Builder()
+                .url(getBaseURL() + "/" + targetKey)
+                .put(RequestBody.create(new byte[0], null))
+                .headers(ossHeaders)
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
 
-        for (File file : files) {
-            String relativePath = dir.toPath().relativize(file.toPath()).toString();
-            String key = prefix.isEmpty() ? relativePath : Paths.get(prefix, relativePath).toString();
-            if (!uploadFile(key, file.getAbsolutePath())) {
-                success = false;
+        try (Response response = newTransferCall(request).execute()) {
+            if (response.code() == 412) {
+                throw new ObjectChangedException(sourceKey);
+            }
+            if (response.isSuccessful()) {
+                invalidateCache(targetKey);
+                printInfo("成功复制文件：" + sourceKey + " -> " + targetKey);
+                return true;
+            } else {
+                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+                printWarning("复制文件失败：" + errorMessage);
+                return false;
             }
         }
+    }
+
+    /**
+     * 以 UploadPartCopy 从源文件的指定范围复制一个分片
+     * @return 分片ETag，失败时返回null；源文件在复制过程中被修改时抛出 ObjectChangedException
+     */
+    String uploadPartCopy(String sourceKey, String sourceETag, String targetKey, String uploadId, int partNumber,
+                          long start, long end) throws IOException {
+        Headers.Builder headersBuilder = new Headers.Builder()
+                .add("x-oss-copy-source", copySource(sourceKey))
+                .add("x-oss-copy-source-range", "bytes=" + start + "-" + end);
+        if (sourceETag != null) {
+            headersBuilder.add("x-oss-copy-source-if-match", sourceETag);
+        }
+        Headers ossHeaders = headersBuilder.build();
+        String subResource = "?partNumber=" + partNumber + "&uploadId=" + uploadId;
+        String date = getDate();
+        String authorization = getAuthorizationHeader("PUT", "", "", date, targetKey + subResource, ossHeaders);
 
-        return success;
+        Request request = new Request.Builder()
+                .url(getBaseURL() + "/" + targetKey + subResource)
+                .put(RequestBody.create(new byte[0], null))
+                .headers(ossHeaders)
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+
+        try (Response response = newTransferCall(request).execute()) {
+            if (response.code() == 412) {
+                throw new ObjectChangedException(sourceKey);
+            }
+            String body = response.body() != null ? response.body().string() : "";
+            if (response.isSuccessful()) {
+                String eTag = extractXmlValue(body, "ETag");
+                if (eTag != null) {
+                    return eTag.replace("&quot;", "\"");
+                }
+                if (response.header("ETag") != null) {
+                    return response.header("ETag");
+                }
+            }
+            printWarning("复制分片 " + partNumber + " 失败：" + (body.isEmpty() ? "未知错误" : body));
+            return null;
+        }
     }
 
-    public boolean downloadDirectory(String prefix, String localPath) throws IOException {
-        List<String> keys = listKeysWithPrefix(prefix);
-        if (keys.isEmpty()) {
-            printWarning("未找到前缀为 " + prefix + " 的文件");
-            return false;
+    private String copySource(String sourceKey) {
+        try {
+            String encodedKey = URLEncoder.encode(sourceKey, "UTF-8").replace("+", "%20").replace("%2F", "/");
+            return "/" + bucketName + "/" + encodedKey;
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
         }
+    }
 
-        boolean success = true;
-        for (String key : keys) {
-            if (!downloadFile(key, localPath)) {
-                success = false;
+    public boolean copyPrefix(String sourcePrefix, String targetPrefix) throws IOException {
+        return copyPrefix(sourcePrefix, targetPrefix, settings.parallelism);
+    }
+
+    /**
+     * 在OSS内部复制前缀下的所有文件，列举与复制流水线进行，数据不经过本机
+     * @param sourcePrefix 源前缀
+     * @param targetPrefix 目标前缀，与源前缀不能互相包含
+     * @param parallelism 并发复制的文件数
+     * @return 是否全部复制成功
+     */
+    public boolean copyPrefix(String sourcePrefix, String targetPrefix, int parallelism) throws IOException {
+        return transferPrefix(sourcePrefix, targetPrefix, parallelism, false);
+    }
+
+    public boolean movePrefix(String sourcePrefix, String targetPrefix) throws IOException {
+        return movePrefix(sourcePrefix, targetPrefix, settings.parallelism);
+    }
+
+    /**
+     * 在OSS内部移动（重命名）前缀：先复制，复制成功的源文件再按批删除；
+     * 复制失败的文件保留在原位置，可以重新执行
+     * @param sourcePrefix 源前缀
+     * @param targetPrefix 目标前缀，与源前缀不能互相包含
+     * @param parallelism 并发复制的文件数
+     * @return 是否全部移动成功
+     */
+    public boolean movePrefix(String sourcePrefix, String targetPrefix, int parallelism) throws IOException {
+        return transferPrefix(sourcePrefix, targetPrefix, parallelism, true);
+    }
+
+    private boolean transferPrefix(String sourcePrefix, String targetPrefix, int parallelism, boolean move) throws IOException {
+        if (targetPrefix.startsWith(sourcePrefix) || sourcePrefix.startsWith(targetPrefix)) {
+            // 两个前缀互相包含时目标键值会落在源键值空间内：目标在源之下时新复制的文件会再次被列举到；
+            // 源在目标之下时（例如 a/ -> ""）复制 a/a/x 会覆盖尚未复制的源文件 a/x，移动时两份内容都会丢失
+            throw new IllegalArgumentException("源前缀与目标前缀不能互相包含：" + sourcePrefix + " -> " + targetPrefix);
+        }
+
+        Queue<String> copiedKeys = new ConcurrentLinkedQueue<>();
+        int submitted = 0;
+        try (TransferScheduler scheduler = newTransferScheduler(parallelism, move ? "oss-move-prefix" : "oss-copy-prefix")) {
+            Iterator<ObjectSummary> objects = iterateObjectsWithPrefix(sourcePrefix);
+            while (objects.hasNext()) {
+                ObjectSummary summary = objects.next();
+                String sourceKey = summary.getKey();
+                String targetKey = targetPrefix + sourceKey.substring(sourcePrefix.length());
+                scheduler.submit(getBaseURL(), summary.getSize(), () -> {
+                    if (!copyObject(sourceKey, targetKey, summary.getSize(), summary.getETag(), null)) {
+                        return false;
+                    }
+                    if (move) {
+                        copiedKeys.add(sourceKey);
+                    }
+                    return true;
+                });
+                submitted++;
+                // 复制成功的源文件凑满一批即删除，与复制同时进行
+                if (move && copiedKeys.size() >= DELETE_BATCH_SIZE) {
+                    List<String> batch = drain(copiedKeys, DELETE_BATCH_SIZE);
+                    scheduler.submit(getBaseURL(), 0, () -> deleteBatch(batch));
+                }
+            }
+            boolean success = scheduler.awaitCompletion();
+            if (move) {
+                while (!copiedKeys.isEmpty()) {
+                    List<String> batch = drain(copiedKeys, DELETE_BATCH_SIZE);
+                    scheduler.submit(getBaseURL(), 0, () -> deleteBatch(batch));
+                }
+                success &= scheduler.awaitCompletion();
+            }
+            if (submitted == 0) {
+                printWarning("未找到前缀为 " + sourcePrefix + " 的文件");
+                return false;
+            }
+            return success;
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof ListObjectsFailedException) {
+                // 服务端返回错误时失败原因已在列举时输出
+                return false;
             }
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException((move ? "移动" : "复制") + "被中断：" + sourcePrefix);
         }
+    }
 
-        return success;
+    private static List<String> drain(Queue<String> queue, int max) {
+        List<String> batch = new ArrayList<>(max);
+        String key;
+        while (batch.size() < max && (key = queue.poll()) != null) {
+            batch.add(key);
+        }
+        return batch;
+    }
+
+    TransferScheduler newTransferScheduler(int parallelism, String name) {
+        return new TransferScheduler(this, Math.max(1, parallelism), hostSlots, TRANSFER_QUEUE_CAPACITY, name);
     }
 
     public static class DirectoryItem {
         private final String name;
         private final boolean isDirectory;
+        private final long size;
+        private final Date lastModified;
 
         public DirectoryItem(String name, boolean isDirectory) {
+            this(name, isDirectory, 0, null);
+        }
+
+        public DirectoryItem(String name, boolean isDirectory, long size, Date lastModified) {
             this.name = name;
             this.isDirectory = isDirectory;
+            this.size = size;
+            this.lastModified = lastModified;
         }
 
         public String getName() {
@@ -358,68 +1939,117 @@ public class AliyunOSS {
         public boolean isDirectory() {
             return isDirectory;
         }
+
+        /**
+         * 文件大小（字节），目录为0
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * 文件最后修改时间，目录为null
+         */
+        public Date getLastModified() {
+            return lastModified;
+        }
     }
 
     public List<DirectoryItem> listDirectoryContents(String prefix) throws IOException {
-        List<String> allKeys = listKeysWithPrefix(prefix);
-        Map<String, Boolean> contents = new HashMap<>();
-
         String normalizedPrefix = prefix.isEmpty() ? "" : prefix.endsWith("/") ? prefix : prefix + "/";
-        
-        for (String key : allKeys) {
-            if (!normalizedPrefix.isEmpty() && !key.startsWith(normalizedPrefix)) {
-                continue;
-            }
+        List<DirectoryItem> contents = new ArrayList<>();
 
-            String relativePath = key.substring(normalizedPrefix.length());
-            String[] parts = relativePath.split("/");
-            
-            if (parts.length > 0 && !parts[0].isEmpty()) {
-                if (parts.length == 1) {
-                    // 这是一个文件
-                    contents.put(parts[0], false);
-                } else {
-                    // 这是一个目录
-                    contents.put(parts[0], true);
+        // 使用服务端分隔符列举，每一页只返回当前层级的文件和子目录，不再拉取整个子树
+        String marker = "";
+        try {
+            while (true) {
+                ObjectListing page = listObjectsPage(normalizedPrefix, marker, "/");
+                for (ObjectSummary summary : page.getObjectSummaries()) {
+                    String name = summary.getKey().substring(normalizedPrefix.length());
+                    if (!name.isEmpty()) {
+                        // 这是一个文件
+                        contents.add(new DirectoryItem(name, false, summary.getSize(), summary.getLastModified()));
+                    }
+                }
+                for (String commonPrefix : page.getCommonPrefixes()) {
+                    String name = commonPrefix.substring(normalizedPrefix.length(), commonPrefix.length() - 1);
+                    if (!name.isEmpty()) {
+                        // 这是一个目录
+                        contents.add(new DirectoryItem(name, true));
+                    }
                 }
+                if (!page.isTruncated() || page.getNextMarker() == null) {
+                    break;
+                }
+                marker = page.getNextMarker();
             }
+        } catch (ListObjectsFailedException e) {
+            // 服务端返回错误时失败原因已在列举时输出，与原有行为保持一致返回空列表；网络错误照常抛出
+            return new ArrayList<>();
         }
 
-        return contents.entrySet().stream()
-                .map(entry -> new DirectoryItem(entry.getKey(), entry.getValue()))
-                .sorted((a, b) -> {
-                    if (a.isDirectory != b.isDirectory) {
-                        return a.isDirectory ? -1 : 1;
-                    }
-                    return a.getName().compareTo(b.getName());
-                })
-                .collect(Collectors.toList());
+        contents.sort((a, b) -> {
+            if (a.isDirectory != b.isDirectory) {
+                return a.isDirectory ? -1 : 1;
+            }
+            return a.getName().compareTo(b.getName());
+        });
+        return contents;
     }
 
     public boolean downloadFilesWithPrefix(String prefix, String rootDir) throws IOException {
-        List<String> files = listKeysWithPrefix(prefix);
-        boolean allSuccess = true;
-        for (String file : files) {
-            if (!downloadFile(file, rootDir)) {
-                allSuccess = false;
-            }
+        return downloadWithPrefix(prefix, rootDir, settings.parallelism, false);
+    }
+
+    /**
+     * 启用本地磁盘缓存，readFileContent 与 downloadFile 会优先从缓存读取。
+     * TTL内直接命中缓存，过期后通过 If-None-Match 校验ETag，同一键值的并发请求只获取一次。
+     * 通过本实例上传、复制或删除的对象会立即从缓存中移除；其他客户端的修改在TTL过期后才能读到
+     * @param cacheDir 缓存目录
+     * @param maxBytes 缓存总大小上限（字节），超出后按最近最少使用淘汰
+     * @param ttlMillis 无需重新校验的有效期（毫秒）
+     */
+    public void enableCache(String cacheDir, long maxBytes, long ttlMillis) throws IOException {
+        settings.objectCache = new ObjectCache(this, Paths.get(cacheDir), maxBytes, ttlMillis);
+    }
+
+    /**
+     * 关闭本地磁盘缓存，已缓存的文件保留在磁盘上
+     */
+    public void disableCache() {
+        settings.objectCache = null;
+    }
+
+    /**
+     * 本实例写入、复制或删除对象成功后丢弃其缓存，TTL内的读取不会返回旧内容
+     */
+    private void invalidateCache(String key) {
+        ObjectCache cache = settings.objectCache;
+        if (cache != null) {
+            cache.invalidate(key);
         }
-        return allSuccess;
     }
 
-    public String readFileContent(String key) throws IOException {
+    Response executeGet(String key, Headers extraHeaders) throws IOException {
+        return executeRead(getRequest(key, extraHeaders));
+    }
+
+    private Request getRequest(String key, Headers extraHeaders) {
         String date = getDate();
         String authorization = getAuthorizationHeader("GET", "", "", date, key);
 
-        // 检查是否为文件夹（通过检查是否以'/'结尾）
-        if (key.endsWith("/")) {
-            printWarning("指定的键值 '" + key + "' 是一个文件夹");
-            return null;
-        }
+        return new Request.Builder()
+                .url(getBaseURL() + "/" + key)
+                .get()
+                .headers(extraHeaders)
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
+                .build();
+    }
 
-        // 检查是否有子文件（通过列举带有分隔符的对象）
-        String date2 = getDate();
-        String authorization2 = getAuthorizationHeader("GET", "", "", date2, "");
+    private boolean isFolder(String key) throws IOException {
+        String date = getDate();
+        String authorization = getAuthorizationHeader("GET", "", "", date, "");
         HttpUrl.Builder urlBuilder = HttpUrl.parse(getBaseURL() + "/").newBuilder()
                 .addQueryParameter("prefix", key + "/")
                 .addQueryParameter("delimiter", "/")
@@ -428,21 +2058,52 @@ public class AliyunOSS {
         Request listRequest = new Request.Builder()
                 .url(urlBuilder.build())
                 .get()
-                .addHeader("Date", date2)
-                .addHeader("Authorization", authorization2)
+                .addHeader("Date", date)
+                .addHeader("Authorization", authorization)
                 .build();
 
-        try (Response listResponse = client.newCall(listRequest).execute()) {
+        try (Response listResponse = newCall(listRequest).execute()) {
             if (listResponse.isSuccessful() && listResponse.body() != null) {
                 String xmlString = listResponse.body().string();
-                if (xmlString.contains("<Contents>")) {
-                    printWarning("指定的键值 '" + key + "' 是一个文件夹");
+                return xmlString.contains("<Contents>");
+            }
+            return false;
+        }
+    }
+
+    public String readFileContent(String key) throws IOException {
+        String date = getDate();
+        String authorization = getAuthorizationHeader("GET", "", "", date, key);
+
+        // 检查是否为文件夹（通过检查是否以'/'结尾）
+        if (key.endsWith("/")) {
+            printWarning("指定的键值 '" + key + "' 是一个文件夹");
+            return null;
+        }
+
+        ObjectCache cache = settings.objectCache;
+        if (cache != null) {
+            try {
+                // 缓存路径直接获取对象，只有在对象不存在时才检查是否为文件夹
+                ObjectCache.Entry entry = cache.get(key);
+                if (entry == null) {
+                    warnMissingOrFolder(key);
                     return null;
                 }
+                MediaType mediaType = entry.contentType != null ? MediaType.parse(entry.contentType) : null;
+                Charset charset = mediaType != null ? mediaType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+                String content;
+                try (BufferedSource source = Okio.buffer(Okio.source(cache.open(entry)))) {
+                    content = source.readString(charset);
+                }
+                printInfo("成功读取文件内容：" + key);
+                return content;
+            } catch (ObjectCache.UncacheableException e) {
+                // 超过缓存容量或刚被淘汰的对象直接读取
             }
         }
 
-        // 获取文件内容
+        // 直接获取文件内容，只有在对象不存在时才检查是否为文件夹
         Request request = new Request.Builder()
                 .url(getBaseURL() + "/" + key)
                 .get()
@@ -450,20 +2111,464 @@ public class AliyunOSS {
                 .addHeader("Authorization", authorization)
                 .build();
 
-        try (Response response = client.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                String content = response.body().string();
-                printInfo("成功读取文件内容：" + key);
-                return content;
+        try (Response response = executeRead(request)) {
+            return handleReadResponse(key, response);
+        }
+    }
+
+    private String handleReadResponse(String key, Response response) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            String content = response.body().string();
+            printInfo("成功读取文件内容：" + key);
+            return content;
+        } else {
+            String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+            if (response.code() == 404) {
+                warnMissingOrFolder(key);
             } else {
-                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
-                if (response.code() == 404) {
-                    printWarning("文件不存在：" + key);
+                printWarning("读取文件失败：" + errorMessage);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 以字符流方式读取文件内容，内存占用与文件大小无关，适合逐行扫描大型文本文件。
+     * 字符集取自 Content-Type，未指定时使用 UTF-8
+     * @param key 文件键值
+     * @return 字符流，使用完毕后必须关闭以释放连接；文件不存在或为文件夹时返回null
+     */
+    public Reader openReader(String key) throws IOException {
+        if (key.endsWith("/")) {
+            printWarning("指定的键值 '" + key + "' 是一个文件夹");
+            return null;
+        }
+
+        Response response = executeGet(key, Headers.of());
+        if (response.isSuccessful() && response.body() != null) {
+            return response.body().charStream();
+        }
+        try {
+            String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+            if (response.code() == 404) {
+                warnMissingOrFolder(key);
+            } else {
+                printWarning("读取文件失败：" + errorMessage);
+            }
+            return null;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * 以 Stream 形式逐行读取文件内容，内存占用与文件大小无关
+     * @param key 文件键值
+     * @return 行流，使用完毕后应关闭以释放连接，读取失败时抛出 UncheckedIOException；文件不存在或为文件夹时返回null
+     */
+    public Stream<String> readLines(String key) throws IOException {
+        Reader reader = openReader(key);
+        if (reader == null) {
+            return null;
+        }
+        BufferedReader bufferedReader = new BufferedReader(reader, FileRequestBody.BUFFER_SIZE);
+        return bufferedReader.lines().onClose(() -> {
+            try {
+                bufferedReader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * 打开流式上传的输出流，适合长度未知、边生成边上传的数据，无需先写入本地文件。
+     * 使用当前的分片大小，在途分片数不超过当前的并发数
+     * @param key OSS键值
+     * @return 输出流，写入完成后关闭即完成上传；生产者出错时应调用 abort 放弃上传
+     */
+    public MultipartOutputStream openOutputStream(String key) {
+        return openOutputStream(key, settings.partSize, settings.parallelism);
+    }
+
+    /**
+     * 打开流式上传的输出流，内存占用上限约为 (maxInFlightParts + 1) * partSize。
+     * 由于总长度未知，对象大小上限为 partSize * 10000
+     * @param key OSS键值
+     * @param partSize 分片大小（字节）
+     * @param maxInFlightParts 同时在后台上传的最大分片数
+     * @return 输出流，写入完成后关闭即完成上传；生产者出错时应调用 abort 放弃上传
+     */
+    public MultipartOutputStream openOutputStream(String key, long partSize, int maxInFlightParts) {
+        if (partSize < MIN_PART_SIZE || partSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("分片大小必须在 " + MIN_PART_SIZE + " 与 " + (Integer.MAX_VALUE - 8) + " 字节之间");
+        }
+        return new MultipartOutputStream(this, key, (int) partSize, Math.max(1, maxInFlightParts));
+    }
+
+    /**
+     * 打开对象的随机读取通道，按需发送 Range 请求，无需下载整个文件。
+     * 随机读取按块预读并缓存，连续读取自动切换为流式读取。打开时不发送请求，对象不存在时在首次读取时抛出异常
+     * @param key 文件键值
+     * @return 只读的随机读取通道，使用完毕后应关闭
+     */
+    public SeekableByteChannel openChannel(String key) {
+        return openChannel(key, DEFAULT_READ_BLOCK_SIZE, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * 打开对象的随机读取通道
+     * @param key 文件键值
+     * @param blockSize 缓存块大小（字节）
+     * @param readAhead 每次随机读取预读的字节数，同时也是切换为流式读取的连续读取阈值
+     * @return 只读的随机读取通道，使用完毕后应关闭
+     */
+    public SeekableByteChannel openChannel(String key, int blockSize, int readAhead) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("缓存块大小必须大于0");
+        }
+        return new RangedObjectChannel(this, key, blockSize, readAhead, READ_CACHE_BLOCKS);
+    }
+
+    /**
+     * 以输入流方式读取对象，连续读取时自动切换为单个流式请求
+     * @param key 文件键值
+     * @return 输入流，使用完毕后应关闭
+     */
+    public InputStream openInputStream(String key) {
+        return Channels.newInputStream(openChannel(key));
+    }
+
+    private void warnMissingOrFolder(String key) throws IOException {
+        if (isFolder(key)) {
+            printWarning("指定的键值 '" + key + "' 是一个文件夹");
+        } else {
+            printWarning("文件不存在：" + key);
+        }
+    }
+
+    /**
+     * 异步上传文件，调用线程不会被阻塞。小文件在后台线程中计算MD5后交给 OkHttp 的调度器发送；
+     * 分片上传与去重模式需要多次请求，在后台线程池中执行
+     * @param key OSS键值
+     * @param filePath 本地文件路径
+     * @return 是否上传成功；取消该 Future 会取消进行中的请求
+     */
+    public CompletableFuture<Boolean> uploadFileAsync(String key, String filePath) {
+        return uploadFileAsync(key, filePath, 0);
+    }
+
+    /**
+     * 异步上传文件
+     * @param timeoutMillis 整个调用的截止时间（毫秒），超时后请求被取消并以 InterruptedIOException 失败；0 表示不限制
+     */
+    public CompletableFuture<Boolean> uploadFileAsync(String key, String filePath, long timeoutMillis) {
+        File file = new File(filePath);
+        if (!file.exists()) {
+            printWarning("文件不存在：" + filePath);
+            return CompletableFuture.completedFuture(false);
+        }
+        if (file.length() >= settings.multipartThreshold || settings.dedupHashCache != null) {
+            return runInBackground(() -> uploadFile(key, filePath), timeoutMillis);
+        }
+        Path path = file.toPath();
+        long fileSize = file.length();
+        long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : 0;
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> currentStage = new AtomicReference<>();
+        cancelCurrentStageOnCompletion(result, currentStage);
+
+        // 与同步上传一样附带 Content-MD5；计算MD5需要读完整个文件，在后台线程中进行
+        CompletableFuture<String> md5 = runInBackground(() -> {
+            try {
+                return java.util.Base64.getEncoder().encodeToString(FileRequestBody.md5(path, 0, fileSize));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("计算MD5失败：" + e.getMessage(), e);
+            }
+        }, timeoutMillis);
+        if (!startStage(result, currentStage, md5)) {
+            return result;
+        }
+        md5.whenComplete((contentMD5, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            long remaining = deadline > 0 ? deadline - System.currentTimeMillis() : 0;
+            if (deadline > 0 && remaining <= 0) {
+                result.completeExceptionally(new InterruptedIOException("操作超时"));
+                return;
+            }
+            RequestBody requestBody = new FileRequestBody(path, 0, fileSize, MediaType.parse("application/octet-stream"));
+            Crc64RequestBody checkedBody = new Crc64RequestBody(requestBody);
+            CompletableFuture<Boolean> upload = enqueue(newTransferCall(putObjectRequest(key, checkedBody, contentMD5)), remaining,
+                    response -> handlePutResponse(key, response, checkedBody));
+            if (!startStage(result, currentStage, upload)) {
+                return;
+            }
+            upload.whenComplete((success, uploadError) -> {
+                if (uploadError != null) {
+                    result.completeExceptionally(uploadError);
                 } else {
-                    printWarning("读取文件失败：" + errorMessage);
+                    result.complete(success);
                 }
-                return null;
+            });
+        });
+        return result;
+    }
+
+    public CompletableFuture<Boolean> downloadFileAsync(String key, String rootDir) {
+        return downloadFileAsync(key, rootDir, 0);
+    }
+
+    /**
+     * 异步下载文件。先以HEAD获取文件信息，小文件由调度器直接下载，大文件在后台线程池中分段下载
+     * @param key OSS键值
+     * @param rootDir 保存的根目录，为null时保存到当前目录
+     * @param timeoutMillis HEAD请求与下载各自的截止时间（毫秒），0 表示不限制
+     * @return 是否下载成功；取消该 Future 会取消当前进行中的HEAD请求、下载请求或后台分段下载
+     */
+    public CompletableFuture<Boolean> downloadFileAsync(String key, String rootDir, long timeoutMillis) {
+        Path savePath = rootDir != null ? Paths.get(rootDir, key) : Paths.get(key);
+        if (settings.objectCache != null) {
+            return runInBackground(() -> downloadFile(key, rootDir), timeoutMillis);
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> currentStage = new AtomicReference<>();
+        cancelCurrentStageOnCompletion(result, currentStage);
+
+        CompletableFuture<ObjectMetadata> head = getObjectMetadataAsync(key, timeoutMillis);
+        if (!startStage(result, currentStage, head)) {
+            return result;
+        }
+        head.whenComplete((metadata, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            if (metadata == null) {
+                printWarning("下载文件失败：文件不存在 " + key);
+                result.complete(false);
+                return;
+            }
+            CompletableFuture<Boolean> download;
+            if (metadata.getContentLength() >= settings.multipartThreshold) {
+                download = runInBackground(() -> downloadToPath(key, savePath, metadata), timeoutMillis);
+            } else {
+                download = enqueue(newTransferCall(getRequest(key, Headers.of())), timeoutMillis, response -> {
+                    if (savePath.getParent() != null) {
+                        Files.createDirectories(savePath.getParent());
+                    }
+                    return saveDownload(key, savePath, response);
+                });
+            }
+            if (!startStage(result, currentStage, download)) {
+                return;
+            }
+            download.whenComplete((success, downloadError) -> {
+                if (downloadError != null) {
+                    result.completeExceptionally(downloadError);
+                } else {
+                    result.complete(success);
+                }
+            });
+        });
+        return result;
+    }
+
+    public CompletableFuture<String> readFileContentAsync(String key) {
+        return readFileContentAsync(key, 0);
+    }
+
+    /**
+     * 异步读取文件内容
+     * @param timeoutMillis 整个调用的截止时间（毫秒），0 表示不限制
+     * @return 文件内容，文件不存在或为文件夹时为null
+     */
+    public CompletableFuture<String> readFileContentAsync(String key, long timeoutMillis) {
+        if (key.endsWith("/")) {
+            printWarning("指定的键值 '" + key + "' 是一个文件夹");
+            return CompletableFuture.completedFuture(null);
+        }
+        if (settings.objectCache != null) {
+            return runInBackground(() -> readFileContent(key), timeoutMillis);
+        }
+        return enqueue(newTransferCall(getRequest(key, Headers.of())), timeoutMillis, response -> handleReadResponse(key, response));
+    }
+
+    public CompletableFuture<ObjectMetadata> getObjectMetadataAsync(String key) {
+        return getObjectMetadataAsync(key, 0);
+    }
+
+    /**
+     * 异步获取对象元数据
+     * @param timeoutMillis 整个调用的截止时间（毫秒），0 表示不限制
+     * @return 对象元数据，对象不存在时为null
+     */
+    public CompletableFuture<ObjectMetadata> getObjectMetadataAsync(String key, long timeoutMillis) {
+        return enqueue(newCall(headRequest(key)), timeoutMillis, this::handleHeadResponse);
+    }
+
+    public CompletableFuture<List<ObjectSummary>> listObjectsAsync(String prefix) {
+        return listObjectsAsync(prefix, 0);
+    }
+
+    /**
+     * 异步列举指定前缀下的所有对象，逐页发送请求，翻页之间不占用线程
+     * @param prefix 前缀
+     * @param timeoutMillis 每页请求的截止时间（毫秒），0 表示不限制
+     * @return 对象信息列表，请求失败时以 IOException 失败
+     */
+    public CompletableFuture<List<ObjectSummary>> listObjectsAsync(String prefix, long timeoutMillis) {
+        List<ObjectSummary> objects = new ArrayList<>();
+        CompletableFuture<List<ObjectSummary>> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> currentPage = new AtomicReference<>();
+        // 整个列举被取消时同时取消正在进行的那一页
+        cancelCurrentStageOnCompletion(result, currentPage);
+        listPageAsync(prefix, "", timeoutMillis, objects, result, currentPage);
+        return result;
+    }
+
+    private void listPageAsync(String prefix, String marker, long timeoutMillis, List<ObjectSummary> objects,
+                               CompletableFuture<List<ObjectSummary>> result, AtomicReference<CompletableFuture<?>> currentPage) {
+        CompletableFuture<ObjectListing> page = enqueue(newCall(listObjectsRequest(prefix, marker, null, LIST_PAGE_SIZE)), timeoutMillis, this::handleListResponse);
+        if (!startStage(result, currentPage, page)) {
+            return;
+        }
+        page.whenComplete((listing, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            objects.addAll(listing.getObjectSummaries());
+            String nextMarker = listing.getNextMarker();
+            if (listing.isTruncated() && nextMarker != null && !nextMarker.isEmpty() && !result.isDone()) {
+                listPageAsync(prefix, nextMarker, timeoutMillis, objects, result, currentPage);
+            } else {
+                result.complete(objects);
+            }
+        });
+    }
+
+    public CompletableFuture<Boolean> deleteFileAsync(String key) {
+        return deleteFileAsync(key, 0);
+    }
+
+    /**
+     * 异步删除文件
+     * @param timeoutMillis 整个调用的截止时间（毫秒），0 表示不限制
+     * @return 是否删除成功
+     */
+    public CompletableFuture<Boolean> deleteFileAsync(String key, long timeoutMillis) {
+        return enqueue(newCall(deleteRequest(key)), timeoutMillis, response -> handleDeleteResponse(key, response));
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface BlockingTask<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * 可在运行时修改的传输设置，原实例与由它创建的限速视图共用同一份
+     */
+    private static final class Settings {
+        private volatile long partSize = DEFAULT_PART_SIZE;
+        private volatile long multipartThreshold = DEFAULT_MULTIPART_THRESHOLD;
+        private volatile int parallelism = DEFAULT_PARALLELISM;
+        private volatile boolean resumableUploads;
+        private volatile ObjectCache objectCache;
+        private volatile LocalHashCache dedupHashCache;
+    }
+
+    @FunctionalInterface
+    private interface ProgressTask<T> {
+        T run(TransferObserver.Progress progress) throws IOException;
+    }
+
+    /**
+     * 通过 OkHttp 调度器异步发送请求，等待响应和重试退避期间都不占用线程；
+     * 取消返回的 Future 会取消请求，超时由 OkHttp 的调用超时控制；timeoutMillis 大于0时覆盖该类操作的默认超时
+     */
+    private <T> CompletableFuture<T> enqueue(Call call, long timeoutMillis, ResponseHandler<T> handler) {
+        if (timeoutMillis > 0) {
+            call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable cancel = retryInterceptor.enqueue(call, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    future.complete(handler.handle(r));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((value, error) -> {
+            if (future.isCancelled()) {
+                cancel.run();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 由多个依次进行的阶段组成的异步操作只注册一次回调：result 被取消时取消 currentStage 中正在进行的阶段
+     */
+    private static void cancelCurrentStageOnCompletion(CompletableFuture<?> result, AtomicReference<CompletableFuture<?>> currentStage) {
+        result.whenComplete((value, error) -> {
+            CompletableFuture<?> stage = currentStage.get();
+            if (result.isCancelled() && stage != null) {
+                stage.cancel(true);
             }
+        });
+    }
+
+    /**
+     * 记录新开始的阶段；result 已经结束（例如刚被取消）时取消该阶段并返回false
+     */
+    private static boolean startStage(CompletableFuture<?> result, AtomicReference<CompletableFuture<?>> currentStage,
+                                      CompletableFuture<?> stage) {
+        currentStage.set(stage);
+        if (result.isDone()) {
+            stage.cancel(true);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 需要多次请求的操作在后台线程池中执行；取消或超时时中断执行线程
+     */
+    private <T> CompletableFuture<T> runInBackground(BlockingTask<T> task, long timeoutMillis) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Future<?> running = backgroundExecutor.submit(() -> {
+            try {
+                future.complete(task.run());
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> deadline = DEADLINE_TIMER.schedule(
+                    () -> future.completeExceptionally(new InterruptedIOException("操作超时")), timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((value, error) -> deadline.cancel(false));
         }
+        future.whenComplete((value, error) -> {
+            if (!running.isDone()) {
+                running.cancel(true);
+            }
+        });
+        return future;
     }
 } 
\ No newline at end of file
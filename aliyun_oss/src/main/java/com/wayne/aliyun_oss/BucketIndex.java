@@ -0,0 +1,408 @@
+package com.wayne.aliyun_oss;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 存储桶对象元数据的本地索引。
+ * 索引按键值的UTF-8字节序排好序后写入紧凑的二进制文件并做内存映射，
+ * 前缀查询、目录视图与容量统计都通过二分查找在本地完成，不再请求OSS。
+ * 索引超过最大过期时间后，下一次查询会自动全量刷新；也可按前缀做增量刷新。
+ *
+ * <p>文件格式：头部（魔数、版本、构建时间、条目数），条目偏移表（int[]），
+ * 条目区（u16键长、键、i64大小、i64修改时间、u8 ETag长度、ETag）。
+ * 单个索引文件不超过2GB。
+ */
+public class BucketIndex implements Closeable {
+    private static final int MAGIC = 0x4F535349;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    private final AliyunOSS oss;
+    private final Path file;
+    private final long maxStalenessMillis;
+    private volatile Snapshot snapshot;
+
+    private BucketIndex(AliyunOSS oss, Path file, long maxStalenessMillis) {
+        this.oss = oss;
+        this.file = file;
+        this.maxStalenessMillis = maxStalenessMillis;
+    }
+
+    static BucketIndex open(AliyunOSS oss, Path file, long maxStalenessMillis) throws IOException {
+        BucketIndex index = new BucketIndex(oss, file, maxStalenessMillis);
+        Snapshot existing = Files.isRegularFile(file) ? Snapshot.map(file) : null;
+        if (existing == null) {
+            index.refresh();
+        } else {
+            index.snapshot = existing;
+        }
+        return index;
+    }
+
+    /**
+     * 全量刷新索引
+     */
+    public void refresh() throws IOException {
+        refresh("");
+    }
+
+    /**
+     * 只重新列举指定前缀并替换索引中对应的区间，其余条目保持不变
+     * @param prefix 需要刷新的前缀，空字符串表示全量刷新
+     */
+    public synchronized void refresh(String prefix) throws IOException {
+        Snapshot old = snapshot;
+        boolean full = prefix.isEmpty() || old == null;
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int from = full ? 0 : old.lowerBound(prefixBytes);
+        int to = full ? 0 : old.upperBound(prefixBytes, from);
+
+        Path dataFile = Paths.get(file.toString() + ".data.tmp");
+        Path offsetFile = Paths.get(file.toString() + ".offsets.tmp");
+        int count = 0;
+        // 全量刷新整个存储桶时列举是主要耗时，按分片并发列举，结果仍按键值有序
+        try (ParallelObjectLister fresh = ParallelObjectLister.open(oss, full ? "" : prefix, oss.getParallelism(),
+                AliyunOSS.PARALLEL_LIST_BUFFERED_PAGES);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile)));
+             DataOutputStream offsets = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetFile)))) {
+            // 按序写出：刷新区间之前的旧条目、新列举的条目、刷新区间之后的旧条目
+            for (int i = 0; !full && i < from; i++) {
+                count = writeEntry(old.entry(i), data, offsets, count);
+            }
+            while (fresh.hasNext()) {
+                count = writeEntry(fresh.next(), data, offsets, count);
+            }
+            for (int i = to; !full && i < old.count; i++) {
+                count = writeEntry(old.entry(i), data, offsets, count);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(offsetFile);
+            if (e instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e).getCause();
+            }
+            throw e;
+        }
+
+        long builtAt = full ? System.currentTimeMillis() : old.builtAt;
+        Path tmp = Paths.get(file.toString() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp);
+                 DataOutputStream header = new DataOutputStream(out)) {
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeLong(builtAt);
+                header.writeInt(count);
+                header.flush();
+                Files.copy(offsetFile, out);
+                Files.copy(dataFile, out);
+            }
+            // 先映射并校验新文件，不合格时保留原索引文件不动
+            Snapshot refreshed = Snapshot.map(tmp);
+            if (refreshed == null) {
+                throw new IOException("索引文件超过2GB或格式错误：" + file);
+            }
+            CheckpointFiles.moveReplacing(tmp, file);
+            snapshot = refreshed;
+        } finally {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(offsetFile);
+            Files.deleteIfExists(tmp);
+        }
+        oss.printInfo("索引刷新完成：" + (full ? "全量" : prefix) + "，共 " + count + " 个对象");
+    }
+
+    private static int writeEntry(ObjectSummary summary, DataOutputStream data, DataOutputStream offsets, int count)
+            throws IOException {
+        byte[] key = summary.getKey().getBytes(StandardCharsets.UTF_8);
+        byte[] eTag = summary.getETag() != null ? summary.getETag().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (data.size() == Integer.MAX_VALUE || key.length > 0xFFFF || eTag.length > 0xFF) {
+            throw new IOException("索引条目过大或索引文件超过2GB：" + summary.getKey());
+        }
+        offsets.writeInt(data.size());
+        data.writeShort(key.length);
+        data.write(key);
+        data.writeLong(summary.getSize());
+        data.writeLong(summary.getLastModified() != null ? summary.getLastModified().getTime() : -1);
+        data.writeByte(eTag.length);
+        data.write(eTag);
+        return count + 1;
+    }
+
+    /**
+     * 索引构建时间（毫秒时间戳）
+     */
+    public long getBuiltAt() {
+        return snapshot.builtAt;
+    }
+
+    /**
+     * 索引是否已超过最大过期时间
+     */
+    public boolean isStale() {
+        return System.currentTimeMillis() - snapshot.builtAt > maxStalenessMillis;
+    }
+
+    /**
+     * 对象总数
+     */
+    public int size() throws IOException {
+        return current().count;
+    }
+
+    /**
+     * 查询单个对象的元数据
+     * @param key 键值
+     * @return 对象信息，不存在时返回null
+     */
+    public ObjectSummary get(String key) throws IOException {
+        Snapshot s = current();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int i = s.lowerBound(keyBytes);
+        if (i < s.count && s.compareKey(i, keyBytes) == 0) {
+            return s.entry(i);
+        }
+        return null;
+    }
+
+    /**
+     * 按序遍历指定前缀下的所有对象
+     * @param prefix 前缀
+     * @return 对象信息迭代器
+     */
+    public Iterator<ObjectSummary> iterateObjectsWithPrefix(String prefix) throws IOException {
+        Snapshot s = current();
+        byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        int from = s.lowerBound(prefixBytes);
+        int to = s.upperBound(prefixBytes, from);
+        return new Iterator<ObjectSummary>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public ObjectSummary next() {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+                return s.entry(next++);
+            }
+        };
+    }
+
+    public List<String> listKeysWithPrefix(String prefix) throws IOException {
+        List<String> keys = new ArrayList<>();
+        iterateObjectsWithPrefix(prefix).forEachRemaining(summary -> keys.add(summary.getKey()));
+        return keys;
+    }
+
+    /**
+     * 统计指定前缀下的对象总大小
+     * @param prefix 前缀
+     * @return 总字节数
+     */
+    public long totalSize(String prefix) throws IOException {
+        long total = 0;
+        Iterator<ObjectSummary> objects = iterateObjectsWithPrefix(prefix);
+        while (objects.hasNext()) {
+            total += objects.next().getSize();
+        }
+        return total;
+    }
+
+    /**
+     * 在本地索引上列举目录内容，子目录通过二分查找整体跳过
+     * @param prefix 目录前缀
+     * @return 目录在前、按名称排序的目录项
+     */
+    public List<AliyunOSS.DirectoryItem> listDirectoryContents(String prefix) throws IOException {
+        Snapshot s = current();
+        String normalizedPrefix = prefix.isEmpty() ? "" : prefix.endsWith("/") ? prefix : prefix + "/";
+        byte[] prefixBytes = normalizedPrefix.getBytes(StandardCharsets.UTF_8);
+        int i = s.lowerBound(prefixBytes);
+        int end = s.upperBound(prefixBytes, i);
+
+        List<AliyunOSS.DirectoryItem> directories = new ArrayList<>();
+        List<AliyunOSS.DirectoryItem> files = new ArrayList<>();
+        while (i < end) {
+            ObjectSummary summary = s.entry(i);
+            String name = summary.getKey().substring(normalizedPrefix.length());
+            int slash = name.indexOf('/');
+            if (slash >= 0) {
+                String directory = name.substring(0, slash);
+                directories.add(new AliyunOSS.DirectoryItem(directory, true));
+                byte[] directoryPrefix = (normalizedPrefix + directory + "/").getBytes(StandardCharsets.UTF_8);
+                i = s.upperBound(directoryPrefix, i);
+            } else {
+                if (!name.isEmpty()) {
+                    files.add(new AliyunOSS.DirectoryItem(name, false, summary.getSize(), summary.getLastModified()));
+                }
+                i++;
+            }
+        }
+        directories.addAll(files);
+        return directories;
+    }
+
+    @Override
+    public void close() {
+        snapshot = null;
+    }
+
+    private Snapshot current() throws IOException {
+        if (snapshot == null) {
+            throw new IOException("索引已关闭");
+        }
+        if (isStale()) {
+            refreshIfStale();
+        }
+        return snapshot;
+    }
+
+    /**
+     * 多个线程同时发现索引过期时只有第一个刷新，其余线程等它完成后直接使用新索引
+     */
+    private synchronized void refreshIfStale() throws IOException {
+        if (snapshot != null && isStale()) {
+            refresh();
+        }
+    }
+
+    private static final class Snapshot {
+        private final MappedByteBuffer buffer;
+        private final long builtAt;
+        private final int count;
+        private final int dataStart;
+
+        private Snapshot(MappedByteBuffer buffer, long builtAt, int count) {
+            this.buffer = buffer;
+            this.builtAt = builtAt;
+            this.count = count;
+            this.dataStart = HEADER_SIZE + count * 4;
+        }
+
+        static Snapshot map(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE || channel.size() < HEADER_SIZE) {
+                    return null;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int count = buffer.getInt(16);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                        || count < 0 || HEADER_SIZE + (long) count * 4 > channel.size()) {
+                    return null;
+                }
+                return new Snapshot(buffer, buffer.getLong(8), count);
+            }
+        }
+
+        private int offset(int index) {
+            return dataStart + buffer.getInt(HEADER_SIZE + index * 4);
+        }
+
+        ObjectSummary entry(int index) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(offset(index));
+            byte[] key = new byte[view.getShort() & 0xFFFF];
+            view.get(key);
+            long size = view.getLong();
+            long lastModified = view.getLong();
+            byte[] eTag = new byte[view.get() & 0xFF];
+            view.get(eTag);
+            return new ObjectSummary(
+                    new String(key, StandardCharsets.UTF_8),
+                    size,
+                    eTag.length > 0 ? new String(eTag, StandardCharsets.UTF_8) : null,
+                    lastModified >= 0 ? new Date(lastModified) : null,
+                    null);
+        }
+
+        /**
+         * 按无符号字节比较第index个键与目标，不创建字符串
+         */
+        int compareKey(int index, byte[] target) {
+            int position = offset(index);
+            int length = buffer.getShort(position) & 0xFFFF;
+            position += 2;
+            int common = Math.min(length, target.length);
+            for (int i = 0; i < common; i++) {
+                int a = buffer.get(position + i) & 0xFF;
+                int b = target[i] & 0xFF;
+                if (a != b) {
+                    return a - b;
+                }
+            }
+            return length - target.length;
+        }
+
+        private boolean startsWith(int index, byte[] prefix) {
+            int position = offset(index);
+            int length = buffer.getShort(position) & 0xFFFF;
+            if (length < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (buffer.get(position + 2 + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 第一个不小于目标的条目位置
+         */
+        int lowerBound(byte[] target) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareKey(mid, target) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * 从from开始第一个不以prefix开头且大于prefix的条目位置
+         */
+        int upperBound(byte[] prefix, int from) {
+            int low = from;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareKey(mid, prefix) < 0 || startsWith(mid, prefix)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.wayne.aliyun_oss;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.Checksum;
+
+/**
+ * OSS使用的 CRC64-ECMA 校验（反射多项式，初值与结果异或全1，即 CRC-64/XZ）。
+ * 按8字节分片查表计算；combine 可以把各分片独立计算的CRC按顺序合并为整个对象的CRC，
+ * 因此并发上传或下载的各个分片无需再串行读取一遍数据
+ */
+class CRC64 implements Checksum {
+    private static final long POLY = 0xC96C5795D7870F42L;
+    private static final long[][] TABLE = new long[8][256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            long crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLY : crc >>> 1;
+            }
+            TABLE[0][n] = crc;
+        }
+        for (int n = 0; n < 256; n++) {
+            long crc = TABLE[0][n];
+            for (int k = 1; k < 8; k++) {
+                crc = TABLE[0][(int) (crc & 0xFF)] ^ (crc >>> 8);
+                TABLE[k][n] = crc;
+            }
+        }
+    }
+
+    private long value;
+
+    @Override
+    public void update(int b) {
+        long crc = ~value;
+        crc = TABLE[0][(int) ((crc ^ b) & 0xFF)] ^ (crc >>> 8);
+        value = ~crc;
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        long crc = ~value;
+        while (len >= 8) {
+            crc ^= (b[off] & 0xFFL)
+                    | (b[off + 1] & 0xFFL) << 8
+                    | (b[off + 2] & 0xFFL) << 16
+                    | (b[off + 3] & 0xFFL) << 24
+                    | (b[off + 4] & 0xFFL) << 32
+                    | (b[off + 5] & 0xFFL) << 40
+                    | (b[off + 6] & 0xFFL) << 48
+                    | (b[off + 7] & 0xFFL) << 56;
+            crc = TABLE[7][(int) (crc & 0xFF)]
+                    ^ TABLE[6][(int) ((crc >>> 8) & 0xFF)]
+                    ^ TABLE[5][(int) ((crc >>> 16) & 0xFF)]
+                    ^ TABLE[4][(int) ((crc >>> 24) & 0xFF)]
+                    ^ TABLE[3][(int) ((crc >>> 32) & 0xFF)]
+                    ^ TABLE[2][(int) ((crc >>> 40) & 0xFF)]
+                    ^ TABLE[1][(int) ((crc >>> 48) & 0xFF)]
+                    ^ TABLE[0][(int) (crc >>> 56)];
+            off += 8;
+            len -= 8;
+        }
+        while (len-- > 0) {
+            crc = TABLE[0][(int) ((crc ^ b[off++]) & 0xFF)] ^ (crc >>> 8);
+        }
+        value = ~crc;
+    }
+
+    /**
+     * 计算缓冲区中剩余的数据，完成后缓冲区的位置移到上限
+     */
+    public void update(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            byte[] chunk = new byte[Math.min(buffer.remaining(), 8192)];
+            while (buffer.hasRemaining()) {
+                int n = Math.min(buffer.remaining(), chunk.length);
+                buffer.get(chunk, 0, n);
+                update(chunk, 0, n);
+            }
+        }
+    }
+
+    @Override
+    public long getValue() {
+        return value;
+    }
+
+    @Override
+    public void reset() {
+        value = 0;
+    }
+
+    /**
+     * 合并两段相邻数据的CRC
+     * @param crc1 前一段的CRC
+     * @param crc2 后一段的CRC
+     * @param len2 后一段的长度
+     * @return 两段拼接后的CRC
+     */
+    static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        // 在GF(2)上把 crc1 后面补 len2 个零字节，再与 crc2 异或
+        long[] even = new long[64];
+        long[] odd = new long[64];
+        odd[0] = POLY;
+        long row = 1;
+        for (int n = 1; n < 64; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        square(even, odd);
+        square(odd, even);
+        do {
+            square(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            len2 >>>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            len2 >>>= 1;
+        } while (len2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    /**
+     * 按分片编号顺序合并各分片的CRC，除最后一片外每片长度都是 partSize
+     * @param parts 按分片编号排序的分片
+     * @return 整个对象的CRC，有分片缺少CRC时返回null
+     */
+    static Long combineParts(List<PartETag> parts, long partSize, long totalSize) {
+        long crc = 0;
+        long remaining = totalSize;
+        for (PartETag part : parts) {
+            if (part.getCrc64() == null) {
+                return null;
+            }
+            long length = Math.min(partSize, remaining);
+            crc = combine(crc, part.getCrc64(), length);
+            remaining -= length;
+        }
+        return crc;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 64; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * 与响应头 x-oss-hash-crc64ecma（无符号十进制）比较
+     * @return 响应头存在且一致时返回true；响应头不存在时无法校验，返回false
+     */
+    static boolean matches(String header, long crc) {
+        return header != null && header.trim().equals(Long.toUnsignedString(crc));
+    }
+}
@@ -0,0 +1,49 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * 断点记录文件的读写工具
+ */
+final class CheckpointFiles {
+    private CheckpointFiles() {
+    }
+
+    static Properties load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+            return properties;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static void store(Properties properties, Path file) throws IOException {
+        // 先写临时文件再原子替换，避免进程中断时留下半截记录
+        Path tmp = Paths.get(file.toString() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, null);
+        }
+        moveReplacing(tmp, file);
+    }
+
+    static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
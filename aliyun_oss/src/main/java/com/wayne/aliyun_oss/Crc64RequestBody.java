@@ -0,0 +1,68 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+import java.io.IOException;
+
+/**
+ * 在发送请求体的同时计算其 CRC64，发送完成后即可与服务端返回的 x-oss-hash-crc64ecma 比较，无需再读一遍数据
+ */
+class Crc64RequestBody extends RequestBody {
+    static final String CRC64_HEADER = "x-oss-hash-crc64ecma";
+
+    private final RequestBody delegate;
+    private volatile long crc64;
+
+    Crc64RequestBody(RequestBody delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public boolean isOneShot() {
+        return delegate.isOneShot();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // 请求重试时会重新写入，每次都从头计算
+        CRC64 crc = new CRC64();
+        byte[] chunk = new byte[FileRequestBody.BUFFER_SIZE];
+        BufferedSink checked = Okio.buffer(new ForwardingSink(sink) {
+            @Override
+            public void write(Buffer source, long byteCount) throws IOException {
+                Buffer copy = new Buffer();
+                source.copyTo(copy, 0, byteCount);
+                while (!copy.exhausted()) {
+                    int n = copy.read(chunk, 0, chunk.length);
+                    crc.update(chunk, 0, n);
+                }
+                super.write(source, byteCount);
+            }
+        });
+        delegate.writeTo(checked);
+        checked.emit();
+        crc64 = crc.getValue();
+    }
+
+    /**
+     * 最近一次发送的请求体的CRC64，应在请求完成后读取
+     */
+    long crc64() {
+        return crc64;
+    }
+}
@@ -0,0 +1,205 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 目录增量同步：根据大小、ETag/MD5与修改时间比较本地文件与远端对象，只传输新增或变化的文件，
+ * 可选删除目标端多余的文件。本地MD5缓存在同步目录下的清单文件中，重复同步时不必重新计算未变化文件的MD5
+ */
+class DirectorySync {
+    static final String MANIFEST_NAME = ".oss_sync_manifest";
+
+    private final AliyunOSS oss;
+    private final Path localDir;
+    private final String prefix;
+    private final String listPrefix;
+    private final int parallelism;
+    private final LocalHashCache hashCache;
+    private final AtomicInteger transferred = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    DirectorySync(AliyunOSS oss, Path localDir, String prefix, int parallelism) {
+        this.oss = oss;
+        this.localDir = localDir;
+        this.prefix = prefix;
+        this.listPrefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.parallelism = parallelism;
+        this.hashCache = LocalHashCache.load(localDir.resolve(MANIFEST_NAME));
+    }
+
+    boolean syncUpload(boolean deleteExtra) throws IOException {
+        Map<String, ObjectSummary> remote = listRemote();
+        boolean success;
+        try (TransferScheduler scheduler = oss.newTransferScheduler(parallelism, "oss-sync-upload");
+             Stream<Path> paths = Files.walk(localDir)) {
+            Iterator<Path> files = paths.filter(Files::isRegularFile).filter(file -> !isSyncArtifact(file)).iterator();
+            while (files.hasNext()) {
+                Path file = files.next();
+                String relativePath = localDir.relativize(file).toString();
+                String key = prefix.isEmpty() ? relativePath : Paths.get(prefix, relativePath).toString();
+                ObjectSummary summary = remote.remove(key);
+                scheduler.submit(oss.getBaseURL(), Files.size(file), () -> {
+                    if (summary != null && isUnchanged(file, summary, true)) {
+                        skipped.incrementAndGet();
+                        return true;
+                    }
+                    transferred.incrementAndGet();
+                    return oss.uploadFile(key, file.toAbsolutePath().toString());
+                });
+            }
+            success = scheduler.awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("同步上传被中断：" + localDir);
+        } finally {
+            saveHashCache();
+        }
+
+        int deleted = 0;
+        if (deleteExtra && !remote.isEmpty()) {
+            // 剩下的远端对象在本地已不存在
+            List<String> extras = new ArrayList<>(remote.keySet());
+            deleted = extras.size();
+            if (!oss.deleteObjects(extras)) {
+                success = false;
+            }
+        }
+        oss.printInfo("同步上传完成：传输 " + transferred.get() + " 个，跳过 " + skipped.get() + " 个，删除 " + deleted + " 个");
+        return success;
+    }
+
+    boolean syncDownload(boolean deleteExtra) throws IOException {
+        Set<Path> remoteFiles = new HashSet<>();
+        boolean success;
+        try (TransferScheduler scheduler = oss.newTransferScheduler(parallelism, "oss-sync-download")) {
+            Iterator<ObjectSummary> objects = oss.iterateObjectsWithPrefix(listPrefix);
+            while (objects.hasNext()) {
+                ObjectSummary summary = objects.next();
+                if (summary.getKey().endsWith("/")) {
+                    continue;
+                }
+                Path file = localDir.resolve(summary.getKey().substring(listPrefix.length()));
+                remoteFiles.add(file.toAbsolutePath().normalize());
+                scheduler.submit(oss.getBaseURL(), summary.getSize(), () -> {
+                    if (Files.isRegularFile(file) && isUnchanged(file, summary, false)) {
+                        skipped.incrementAndGet();
+                        return true;
+                    }
+                    transferred.incrementAndGet();
+                    if (!oss.downloadToPath(summary.getKey(), file, ObjectMetadata.fromSummary(summary))) {
+                        return false;
+                    }
+                    // 与远端保持一致的修改时间，下次同步可直接按时间判断分片上传的对象
+                    if (summary.getLastModified() != null) {
+                        Files.setLastModifiedTime(file, FileTime.fromMillis(summary.getLastModified().getTime()));
+                    }
+                    return true;
+                });
+            }
+            success = scheduler.awaitCompletion();
+        } catch (UncheckedIOException e) {
+            if (e.getCause() instanceof ListObjectsFailedException) {
+                // 服务端返回错误时失败原因已在列举时输出
+                return false;
+            }
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("同步下载被中断：" + prefix);
+        } finally {
+            saveHashCache();
+        }
+
+        int deleted = 0;
+        if (deleteExtra && Files.isDirectory(localDir)) {
+            List<Path> extras = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(localDir)) {
+                paths.filter(Files::isRegularFile)
+                        .filter(file -> !isSyncArtifact(file))
+                        .filter(file -> !remoteFiles.contains(file.toAbsolutePath().normalize()))
+                        .forEach(extras::add);
+            }
+            for (Path extra : extras) {
+                Files.deleteIfExists(extra);
+                deleted++;
+            }
+        }
+        oss.printInfo("同步下载完成：传输 " + transferred.get() + " 个，跳过 " + skipped.get() + " 个，删除 " + deleted + " 个");
+        return success;
+    }
+
+    private Map<String, ObjectSummary> listRemote() throws IOException {
+        Map<String, ObjectSummary> remote = new HashMap<>();
+        try {
+            Iterator<ObjectSummary> objects = oss.iterateObjectsWithPrefix(listPrefix);
+            while (objects.hasNext()) {
+                ObjectSummary summary = objects.next();
+                remote.put(summary.getKey(), summary);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return remote;
+    }
+
+    private boolean isUnchanged(Path file, ObjectSummary summary, boolean upload) throws IOException {
+        if (Files.size(file) != summary.getSize()) {
+            return false;
+        }
+        String eTag = summary.getETag() != null ? summary.getETag().replace("\"", "") : "";
+        if (isPlainMD5(eTag)) {
+            return hashCache.md5Hex(file).equalsIgnoreCase(eTag);
+        }
+        // 分片上传对象的ETag不是内容MD5，只能比较修改时间
+        if (summary.getLastModified() == null) {
+            return false;
+        }
+        long localTime = Files.getLastModifiedTime(file).toMillis() / 1000;
+        long remoteTime = summary.getLastModified().getTime() / 1000;
+        return upload ? remoteTime >= localTime : remoteTime == localTime;
+    }
+
+    static boolean isPlainMD5(String eTag) {
+        if (eTag.length() != 32) {
+            return false;
+        }
+        for (int i = 0; i < eTag.length(); i++) {
+            if (Character.digit(eTag.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSyncArtifact(Path file) {
+        String name = file.getFileName().toString();
+        return name.equals(MANIFEST_NAME) || name.equals(MANIFEST_NAME + ".tmp")
+                || name.endsWith(UploadCheckpoint.SUFFIX) || name.endsWith(UploadCheckpoint.SUFFIX + ".tmp")
+                || name.endsWith(RangedDownloader.PART_SUFFIX) || name.endsWith(DownloadCheckpoint.SUFFIX)
+                || name.endsWith(DownloadCheckpoint.SUFFIX + ".tmp");
+    }
+
+    private void saveHashCache() {
+        try {
+            Files.createDirectories(localDir);
+            hashCache.save();
+        } catch (IOException e) {
+            oss.printWarning("保存MD5缓存失败：" + e.getMessage());
+        }
+    }
+}
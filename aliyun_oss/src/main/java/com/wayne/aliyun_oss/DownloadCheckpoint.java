@@ -0,0 +1,142 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 分段下载的断点记录，与 .part 临时文件放在一起，记录对象的ETag和已完成的分段。
+ * 对象没有ETag时无法判断续传的数据是否来自同一版本，只在内存中记录，不写断点文件
+ */
+class DownloadCheckpoint {
+    static final String SUFFIX = ".ossdownload";
+
+    private final Path file;
+    private final String key;
+    private final String eTag;
+    private final long size;
+    private final long rangeSize;
+    private final BitSet completed = new BitSet();
+    private final Map<Integer, Long> crcs = new TreeMap<>();
+
+    DownloadCheckpoint(Path file, String key, String eTag, long size, long rangeSize) {
+        this.file = file;
+        this.key = key;
+        this.eTag = eTag;
+        this.size = size;
+        this.rangeSize = rangeSize;
+    }
+
+    static Path pathFor(Path partFile) {
+        return Paths.get(partFile.toString() + SUFFIX);
+    }
+
+    /**
+     * 读取断点记录
+     * @param file 断点文件
+     * @return 断点记录，不存在或已损坏时返回null
+     */
+    static DownloadCheckpoint load(Path file) {
+        Properties properties = CheckpointFiles.load(file);
+        if (properties == null) {
+            return null;
+        }
+        try {
+            DownloadCheckpoint checkpoint = new DownloadCheckpoint(
+                    file,
+                    properties.getProperty("key"),
+                    properties.getProperty("eTag"),
+                    Long.parseLong(properties.getProperty("size")),
+                    Long.parseLong(properties.getProperty("rangeSize")));
+            String ranges = properties.getProperty("completed", "");
+            for (String index : ranges.split(",")) {
+                if (!index.isEmpty()) {
+                    checkpoint.completed.set(Integer.parseInt(index));
+                }
+            }
+            String rangeCrcs = properties.getProperty("crc", "");
+            for (String entry : rangeCrcs.split(",")) {
+                int colon = entry.indexOf(':');
+                if (colon > 0) {
+                    checkpoint.crcs.put(Integer.parseInt(entry.substring(0, colon)), Long.parseUnsignedLong(entry.substring(colon + 1)));
+                }
+            }
+            return checkpoint.key != null && checkpoint.eTag != null ? checkpoint : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    boolean matches(String key, String eTag, long size) {
+        return this.key.equals(key) && this.eTag.equals(eTag) && this.size == size;
+    }
+
+    long getRangeSize() {
+        return rangeSize;
+    }
+
+    synchronized boolean isCompleted(int index) {
+        return completed.get(index);
+    }
+
+    synchronized int completedCount() {
+        return completed.cardinality();
+    }
+
+    synchronized void markCompleted(int index, long crc64) throws IOException {
+        completed.set(index);
+        crcs.put(index, crc64);
+        save();
+    }
+
+    /**
+     * 分段的CRC64，旧的断点记录中没有时返回null
+     */
+    synchronized Long getCrc64(int index) {
+        return crcs.get(index);
+    }
+
+    /**
+     * 是否写入断点文件，没有ETag的对象中断后须从头下载
+     */
+    boolean isResumable() {
+        return eTag != null;
+    }
+
+    synchronized void save() throws IOException {
+        if (!isResumable()) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("key", key);
+        properties.setProperty("eTag", eTag);
+        properties.setProperty("size", String.valueOf(size));
+        properties.setProperty("rangeSize", String.valueOf(rangeSize));
+        StringBuilder ranges = new StringBuilder();
+        for (int i = completed.nextSetBit(0); i >= 0; i = completed.nextSetBit(i + 1)) {
+            if (ranges.length() > 0) {
+                ranges.append(',');
+            }
+            ranges.append(i);
+        }
+        properties.setProperty("completed", ranges.toString());
+        StringBuilder rangeCrcs = new StringBuilder();
+        for (Map.Entry<Integer, Long> entry : crcs.entrySet()) {
+            if (rangeCrcs.length() > 0) {
+                rangeCrcs.append(',');
+            }
+            rangeCrcs.append(entry.getKey()).append(':').append(Long.toUnsignedString(entry.getValue()));
+        }
+        properties.setProperty("crc", rangeCrcs.toString());
+        CheckpointFiles.store(properties, file);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
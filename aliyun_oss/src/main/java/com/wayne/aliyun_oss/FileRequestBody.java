@@ -0,0 +1,99 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 直接从磁盘流式读取的请求体，内存占用固定为一个缓冲区，与文件大小无关
+ */
+class FileRequestBody extends RequestBody {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final long offset;
+    private final long length;
+    private final MediaType contentType;
+
+    FileRequestBody(Path path, long offset, long length, MediaType contentType) {
+        this.path = path;
+        this.offset = offset;
+        this.length = length;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("文件在上传过程中被截断：" + path);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    sink.write(buffer);
+                }
+                position += read;
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * 以固定大小的缓冲区分块计算文件指定区域的MD5
+     * @param path 文件路径
+     * @param offset 起始位置
+     * @param length 长度
+     * @return MD5摘要
+     */
+    static byte[] md5(Path path, long offset, long length) throws IOException, NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("文件在读取过程中被截断：" + path);
+                }
+                buffer.flip();
+                md.update(buffer);
+                position += read;
+                remaining -= read;
+            }
+        }
+        return md.digest();
+    }
+}
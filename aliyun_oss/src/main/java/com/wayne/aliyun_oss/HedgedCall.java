@@ -0,0 +1,121 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对冲请求：先发出原请求，等待超过给定延迟仍无响应时再发出一个相同的请求，
+ * 以先收到响应头的一个为准并取消另一个。落后的请求稍后返回的响应会被直接关闭。
+ * 两个请求都经 RetryInterceptor.enqueue 发送，重试的退避等待不占用调度器线程
+ */
+class HedgedCall {
+    private final RetryInterceptor retryInterceptor;
+    private final Object lock = new Object();
+    private Response winner;
+    private Runnable winnerCancel;
+    private IOException failure;
+    private int pending;
+    private boolean abandoned;
+
+    HedgedCall(RetryInterceptor retryInterceptor) {
+        this.retryInterceptor = retryInterceptor;
+    }
+
+    /**
+     * @param primary 尚未执行的原请求
+     * @param hedgeDelayMillis 发出对冲请求前的等待时间；重试预算不足时只等待原请求
+     */
+    Response execute(Call primary, long hedgeDelayMillis) throws IOException {
+        Runnable primaryCancel = null;
+        Runnable hedgeCancel = null;
+        try {
+            synchronized (lock) {
+                pending++;
+            }
+            primaryCancel = enqueue(primary);
+            Call hedge = null;
+            synchronized (lock) {
+                long deadline = System.nanoTime() + hedgeDelayMillis * 1_000_000L;
+                long remaining = hedgeDelayMillis;
+                while (winner == null && pending > 0 && remaining > 0) {
+                    lock.wait(remaining);
+                    remaining = (deadline - System.nanoTime()) / 1_000_000L;
+                }
+                if (winner == null && pending > 0 && retryInterceptor.tryAcquire()) {
+                    hedge = primary.clone();
+                    hedge.timeout().timeout(primary.timeout().timeoutNanos(), TimeUnit.NANOSECONDS);
+                    pending++;
+                }
+            }
+            if (hedge != null) {
+                hedgeCancel = enqueue(hedge);
+            }
+            synchronized (lock) {
+                while (winner == null && pending > 0) {
+                    lock.wait();
+                }
+                if (winner == null) {
+                    throw failure;
+                }
+                Runnable loserCancel = winnerCancel == primaryCancel ? hedgeCancel : primaryCancel;
+                if (loserCancel != null) {
+                    loserCancel.run();
+                }
+                return winner;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (primaryCancel != null) {
+                primaryCancel.run();
+            }
+            if (hedgeCancel != null) {
+                hedgeCancel.run();
+            }
+            synchronized (lock) {
+                abandoned = true;
+                if (winner != null) {
+                    winner.close();
+                }
+            }
+            throw new InterruptedIOException("读取被中断");
+        }
+    }
+
+    private Runnable enqueue(Call call) {
+        Runnable[] cancel = new Runnable[1];
+        synchronized (lock) {
+            cancel[0] = retryInterceptor.enqueue(call, new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    synchronized (lock) {
+                        pending--;
+                        if (failure == null) {
+                            failure = e;
+                        }
+                        lock.notifyAll();
+                    }
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    synchronized (lock) {
+                        pending--;
+                        if (winner == null && !abandoned) {
+                            winner = response;
+                            winnerCancel = cancel[0];
+                            lock.notifyAll();
+                            return;
+                        }
+                    }
+                    response.close();
+                }
+            });
+            return cancel[0];
+        }
+    }
+}
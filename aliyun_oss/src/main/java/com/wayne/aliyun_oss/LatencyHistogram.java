@@ -0,0 +1,85 @@
+package com.wayne.aliyun_oss;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 对数线性分桶的延迟直方图（与 HdrHistogram 的分桶方式相同）：以微秒记录，
+ * 小于128微秒的值精确记录，更大的值相对误差不超过1/64，内存占用固定，记录时无锁
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int HALF_BUCKETS = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int BUCKET_COUNT = (63 - (SUB_BUCKET_BITS - 1) + 2) * HALF_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(indexOf(micros));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    private static int indexOf(long value) {
+        if (value < (1L << SUB_BUCKET_BITS)) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * HALF_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long lowestValueAt(int index) {
+        if (index < (1 << SUB_BUCKET_BITS)) {
+            return index;
+        }
+        int shift = index / HALF_BUCKETS - 1;
+        return (long) (index - shift * HALF_BUCKETS) << shift;
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @param percentile 百分位，例如 99.9
+     * @return 该百分位的延迟（毫秒），没有记录时为0
+     */
+    public double getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                // 取桶内的最大值，与 HdrHistogram 一致
+                long highest = i + 1 < BUCKET_COUNT ? lowestValueAt(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(highest, maxMicros.get()) / 1000.0;
+            }
+        }
+        return maxMicros.get() / 1000.0;
+    }
+
+    public double getMeanMillis() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : totalMicros.get() / 1000.0 / count;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fms p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+                getCount(), getMeanMillis(), getValueAtPercentile(50), getValueAtPercentile(95),
+                getValueAtPercentile(99), getMaxMillis());
+    }
+}
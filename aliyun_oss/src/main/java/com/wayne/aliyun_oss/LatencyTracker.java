@@ -0,0 +1,39 @@
+package com.wayne.aliyun_oss;
+
+import java.util.Arrays;
+
+/**
+ * 记录最近若干次请求从发出到收到响应头的延迟，用于计算对冲请求的等待时间。
+ * 样本数不足时不给出分位数，避免冷启动阶段对冲过多
+ */
+class LatencyTracker {
+    static final int WINDOW = 256;
+    static final int MIN_SAMPLES = 20;
+
+    private final long[] samples = new long[WINDOW];
+    private int count;
+    private int next;
+
+    synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) {
+            count++;
+        }
+    }
+
+    /**
+     * @return 近期延迟的分位数（毫秒），样本不足时返回-1
+     */
+    long percentile(double quantile) {
+        long[] sorted;
+        synchronized (this) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sorted);
+        return sorted[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+    }
+}
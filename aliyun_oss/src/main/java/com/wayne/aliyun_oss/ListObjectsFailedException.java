@@ -0,0 +1,14 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+
+/**
+ * 列举请求收到了服务端的错误响应（而不是网络错误），错误信息已经输出
+ */
+class ListObjectsFailedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    ListObjectsFailedException(int code) {
+        super("获取文件列表失败：HTTP " + code);
+    }
+}
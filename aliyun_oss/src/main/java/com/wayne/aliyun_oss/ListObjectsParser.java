@@ -0,0 +1,367 @@
+package com.wayne.aliyun_oss;
+
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * ListBucketResult 的流式解析器，直接从响应流读取，不缓存整页XML文本。
+ * 不依赖 javax.xml.stream（Android 上没有 StAX），用 Okio 按标签逐个读取，
+ * 只支持 OSS 返回结果用到的XML子集：元素、属性、文本、实体与字符引用、CDATA、注释、XML声明和DOCTYPE。
+ * 属性值中可以出现 '>'；未知的实体和不完整的引用按原文保留，不让一个异常的键值导致整页列举失败。
+ * 响应带 EncodingType=url 时，Key、Prefix 与 NextMarker 按URL编码解码
+ */
+final class ListObjectsParser {
+    private ListObjectsParser() {
+    }
+
+    static ObjectListing parse(InputStream in) throws IOException {
+        List<ObjectSummary> objectSummaries = new ArrayList<>();
+        List<String> commonPrefixes = new ArrayList<>();
+        boolean truncated = false;
+        String nextMarker = null;
+        boolean urlEncoded = false;
+
+        try (BufferedSource source = Okio.buffer(Okio.source(in))) {
+            XmlReader reader = new XmlReader(source);
+            int event;
+            while ((event = reader.next()) != XmlReader.END_DOCUMENT) {
+                if (event != XmlReader.START_ELEMENT) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "Contents":
+                        objectSummaries.add(parseContents(reader));
+                        break;
+                    case "CommonPrefixes":
+                        String commonPrefix = parseCommonPrefix(reader);
+                        if (commonPrefix != null) {
+                            commonPrefixes.add(commonPrefix);
+                        }
+                        break;
+                    case "IsTruncated":
+                        truncated = "true".equalsIgnoreCase(reader.getElementText().trim());
+                        break;
+                    case "NextMarker":
+                        nextMarker = reader.getElementText();
+                        break;
+                    case "EncodingType":
+                        urlEncoded = "url".equalsIgnoreCase(reader.getElementText().trim());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("解析文件列表失败：" + e.getMessage(), e);
+        }
+
+        if (urlEncoded) {
+            // EncodingType 可能出现在 Contents 之后，整页读完后再统一解码
+            List<ObjectSummary> decoded = new ArrayList<>(objectSummaries.size());
+            for (ObjectSummary summary : objectSummaries) {
+                decoded.add(new ObjectSummary(urlDecode(summary.getKey()), summary.getSize(), summary.getETag(),
+                        summary.getLastModified(), summary.getStorageClass()));
+            }
+            objectSummaries = decoded;
+            commonPrefixes.replaceAll(ListObjectsParser::urlDecode);
+            nextMarker = urlDecode(nextMarker);
+        }
+
+        if (truncated && (nextMarker == null || nextMarker.isEmpty())) {
+            // 未返回NextMarker时，取本页最后一个键值或前缀中较大者
+            String lastKey = objectSummaries.isEmpty() ? "" : objectSummaries.get(objectSummaries.size() - 1).getKey();
+            String lastPrefix = commonPrefixes.isEmpty() ? "" : commonPrefixes.get(commonPrefixes.size() - 1);
+            nextMarker = lastKey.compareTo(lastPrefix) >= 0 ? lastKey : lastPrefix;
+        }
+        return new ObjectListing(objectSummaries, commonPrefixes, truncated, nextMarker);
+    }
+
+    private static String parseCommonPrefix(XmlReader reader) throws IOException {
+        String prefix = null;
+        while (true) {
+            int event = reader.next();
+            if (event == XmlReader.END_DOCUMENT
+                    || event == XmlReader.END_ELEMENT && "CommonPrefixes".equals(reader.getLocalName())) {
+                break;
+            }
+            if (event == XmlReader.START_ELEMENT) {
+                if ("Prefix".equals(reader.getLocalName())) {
+                    prefix = reader.getElementText();
+                } else {
+                    skipElement(reader);
+                }
+            }
+        }
+        return prefix;
+    }
+
+    private static ObjectSummary parseContents(XmlReader reader) throws IOException {
+        String key = null;
+        long size = 0;
+        String eTag = null;
+        Date lastModified = null;
+        String storageClass = null;
+
+        while (true) {
+            int event = reader.next();
+            if (event == XmlReader.END_DOCUMENT
+                    || event == XmlReader.END_ELEMENT && "Contents".equals(reader.getLocalName())) {
+                break;
+            }
+            if (event != XmlReader.START_ELEMENT) {
+                continue;
+            }
+            switch (reader.getLocalName()) {
+                case "Key":
+                    key = reader.getElementText();
+                    break;
+                case "Size":
+                    size = Long.parseLong(reader.getElementText().trim());
+                    break;
+                case "ETag":
+                    eTag = reader.getElementText();
+                    break;
+                case "LastModified":
+                    lastModified = parseDate(reader.getElementText().trim());
+                    break;
+                case "StorageClass":
+                    storageClass = reader.getElementText();
+                    break;
+                default:
+                    skipElement(reader);
+                    break;
+            }
+        }
+        return new ObjectSummary(key, size, eTag, lastModified, storageClass);
+    }
+
+    private static void skipElement(XmlReader reader) throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XmlReader.START_ELEMENT) {
+                depth++;
+            } else if (event == XmlReader.END_ELEMENT) {
+                depth--;
+            } else {
+                break;
+            }
+        }
+    }
+
+    private static String urlDecode(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Date parseDate(String value) {
+        try {
+            return Date.from(Instant.parse(value));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 最小的XML拉取式读取器，接口与 StAX 的 XMLStreamReader 对应：
+     * next() 跳过文本返回下一个开始或结束标签，getElementText() 读取当前元素的文本直到其结束标签
+     */
+    private static final class XmlReader {
+        static final int START_ELEMENT = 1;
+        static final int END_ELEMENT = 2;
+        static final int END_DOCUMENT = 3;
+
+        private static final ByteString CDATA_START = ByteString.encodeUtf8("![CDATA[");
+        private static final ByteString CDATA_END = ByteString.encodeUtf8("]]>");
+        private static final ByteString COMMENT_START = ByteString.encodeUtf8("!--");
+        private static final ByteString COMMENT_END = ByteString.encodeUtf8("-->");
+        /**
+         * 最长的实体引用（不含 '&' 和 ';'），字符引用最长为 #x10FFFF
+         */
+        private static final int MAX_ENTITY_LENGTH = 10;
+
+        private final BufferedSource source;
+        private String localName;
+        private boolean pendingEnd;
+
+        private XmlReader(BufferedSource source) {
+            this.source = source;
+        }
+
+        String getLocalName() {
+            return localName;
+        }
+
+        int next() throws IOException {
+            if (pendingEnd) {
+                pendingEnd = false;
+                return END_ELEMENT;
+            }
+            while (true) {
+                long start = source.indexOf((byte) '<');
+                if (start == -1) {
+                    return END_DOCUMENT;
+                }
+                source.skip(start + 1);
+                if (source.rangeEquals(0, CDATA_START)) {
+                    skipPast(CDATA_END);
+                } else if (source.rangeEquals(0, COMMENT_START)) {
+                    skipPast(COMMENT_END);
+                } else if (source.request(1) && (source.getBuffer().getByte(0) == '?' || source.getBuffer().getByte(0) == '!')) {
+                    skipPast(ByteString.encodeUtf8(">"));
+                } else {
+                    return readTag();
+                }
+            }
+        }
+
+        /**
+         * 在开始标签之后调用，读取元素内的文本；元素内出现子元素时失败
+         */
+        String getElementText() throws IOException {
+            if (pendingEnd) {
+                pendingEnd = false;
+                return "";
+            }
+            StringBuilder text = new StringBuilder();
+            while (true) {
+                long start = source.indexOf((byte) '<');
+                if (start == -1) {
+                    throw new IOException("解析文件列表失败：元素 " + localName + " 未结束");
+                }
+                decodeText(source.readUtf8(start), text);
+                source.skip(1);
+                if (source.rangeEquals(0, CDATA_START)) {
+                    source.skip(CDATA_START.size());
+                    long end = source.indexOf(CDATA_END);
+                    if (end == -1) {
+                        throw new IOException("解析文件列表失败：CDATA 未结束");
+                    }
+                    text.append(source.readUtf8(end));
+                    source.skip(CDATA_END.size());
+                } else if (source.rangeEquals(0, COMMENT_START)) {
+                    skipPast(COMMENT_END);
+                } else if (readTag() == END_ELEMENT) {
+                    return text.toString();
+                } else {
+                    throw new IOException("解析文件列表失败：元素 " + localName + " 不应包含子元素");
+                }
+            }
+        }
+
+        /**
+         * 读取 '<' 之后到 '>' 为止的标签，设置元素名。引号内的 '>' 属于属性值，不结束标签
+         */
+        private int readTag() throws IOException {
+            long end = 0;
+            byte quote = 0;
+            while (true) {
+                if (!source.request(end + 1)) {
+                    throw new IOException("解析文件列表失败：标签未结束");
+                }
+                byte b = source.getBuffer().getByte(end);
+                if (quote != 0) {
+                    if (b == quote) {
+                        quote = 0;
+                    }
+                } else if (b == '"' || b == '\'') {
+                    quote = b;
+                } else if (b == '>') {
+                    break;
+                }
+                end++;
+            }
+            String tag = source.readUtf8(end);
+            source.skip(1);
+            boolean endTag = tag.startsWith("/");
+            boolean emptyElement = !endTag && tag.endsWith("/");
+            String name = tag.substring(endTag ? 1 : 0, emptyElement ? tag.length() - 1 : tag.length()).trim();
+            int nameEnd = 0;
+            while (nameEnd < name.length() && !Character.isWhitespace(name.charAt(nameEnd))) {
+                nameEnd++;
+            }
+            name = name.substring(0, nameEnd);
+            // 与 StAX 的 getLocalName 一致，去掉命名空间前缀
+            localName = name.substring(name.indexOf(':') + 1);
+            pendingEnd = emptyElement;
+            return endTag ? END_ELEMENT : START_ELEMENT;
+        }
+
+        private void skipPast(ByteString terminator) throws IOException {
+            long end = source.indexOf(terminator);
+            if (end == -1) {
+                throw new IOException("解析文件列表失败：缺少 " + terminator.utf8());
+            }
+            source.skip(end + terminator.size());
+        }
+
+        private static void decodeText(String raw, StringBuilder out) {
+            int i = 0;
+            while (i < raw.length()) {
+                char c = raw.charAt(i);
+                if (c != '&') {
+                    out.append(c);
+                    i++;
+                    continue;
+                }
+                int semicolon = raw.indexOf(';', i);
+                if (semicolon == -1 || semicolon - i - 1 > MAX_ENTITY_LENGTH) {
+                    // 不完整的引用按原文保留
+                    out.append(c);
+                    i++;
+                    continue;
+                }
+                String entity = raw.substring(i + 1, semicolon);
+                switch (entity) {
+                    case "lt":
+                        out.append('<');
+                        break;
+                    case "gt":
+                        out.append('>');
+                        break;
+                    case "amp":
+                        out.append('&');
+                        break;
+                    case "quot":
+                        out.append('"');
+                        break;
+                    case "apos":
+                        out.append('\'');
+                        break;
+                    default:
+                        try {
+                            if (!entity.startsWith("#")) {
+                                throw new IllegalArgumentException(entity);
+                            }
+                            int codePoint = entity.startsWith("#x") || entity.startsWith("#X")
+                                    ? Integer.parseInt(entity.substring(2), 16)
+                                    : Integer.parseInt(entity.substring(1));
+                            out.appendCodePoint(codePoint);
+                        } catch (IllegalArgumentException e) {
+                            // 未知的实体或无效的字符引用按原文保留
+                            out.append(raw, i, semicolon + 1);
+                        }
+                        break;
+                }
+                i = semicolon + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 本地文件MD5缓存，以路径+大小+修改时间为键，文件未变化时无需重新计算MD5
+ */
+class LocalHashCache {
+    private final Path file;
+    private final Map<String, String> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private LocalHashCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * 读取缓存文件，不存在或已损坏时返回空缓存
+     * @param file 缓存文件
+     * @return MD5缓存
+     */
+    static LocalHashCache load(Path file) {
+        LocalHashCache cache = new LocalHashCache(file);
+        Properties properties = CheckpointFiles.load(file);
+        if (properties != null) {
+            for (String name : properties.stringPropertyNames()) {
+                cache.entries.put(name, properties.getProperty(name));
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 获取文件内容的MD5（十六进制大写），缓存命中时不读取文件
+     * @param path 文件路径
+     * @return MD5十六进制字符串
+     */
+    String md5Hex(Path path) throws IOException {
+        String cacheKey = path.toAbsolutePath().normalize().toString();
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String stamp = size + "," + lastModified + ",";
+
+        String cached = entries.get(cacheKey);
+        if (cached != null && cached.startsWith(stamp)) {
+            return cached.substring(stamp.length());
+        }
+        try {
+            String md5Hex = toHex(FileRequestBody.md5(path, 0, size));
+            entries.put(cacheKey, stamp + md5Hex);
+            dirty.set(true);
+            return md5Hex;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("计算MD5失败：" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 有新条目时写回缓存文件。先清除标记再取快照，快照之后新增的条目会重新标记，留给下一次保存；
+     * 同步执行，避免并发保存时较旧的快照覆盖较新的
+     */
+    synchronized void save() throws IOException {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.putAll(entries);
+        try {
+            CheckpointFiles.store(properties, file);
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString().toUpperCase();
+    }
+
+    static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ((Character.digit(hex.charAt(2 * i), 16) << 4) | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return bytes;
+    }
+}
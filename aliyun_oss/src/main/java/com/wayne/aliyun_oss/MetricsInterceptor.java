@@ -0,0 +1,168 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 记录每次HTTP请求的延迟和收发字节数，位于重试拦截器之内，每次重试都单独记录。
+ * 统计对象通过请求的 TransferObserver 标签传入，没有标签的请求不记录
+ */
+class MetricsInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        TransferObserver observer = request.tag(TransferObserver.class);
+        if (observer == null) {
+            return chain.proceed(request);
+        }
+        String operation = operationName(request);
+        String key = objectKey(request);
+        // 只有带进度标签的数据传输请求计入文件进度，分片上传的初始化、完成等请求不计入
+        TransferObserver.Progress progress = request.tag(TransferObserver.Progress.class);
+        AtomicLong sent = new AtomicLong();
+        if (request.body() != null) {
+            request = request.newBuilder().method(request.method(), counting(request.body(), observer, progress, sent)).build();
+        }
+
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            observer.requestFailed(operation, key, e, System.nanoTime() - start);
+            observer.discardProgress(progress, sent.get());
+            throw e;
+        }
+        observer.requestCompleted(operation, key, response.code(), System.nanoTime() - start);
+        if (!response.isSuccessful()) {
+            // 失败的请求发出的数据没有写入对象，错误响应体也不是对象数据，都不计入进度
+            observer.discardProgress(progress, sent.get());
+            progress = null;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        TransferObserver.Progress receivedProgress = progress;
+        ForwardingSource source = new ForwardingSource(body.source()) {
+            private long received;
+
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long n;
+                try {
+                    n = super.read(sink, byteCount);
+                } catch (IOException e) {
+                    // 读取中断的响应会由调用方重新下载，已计入的字节撤销
+                    observer.discardProgress(receivedProgress, received);
+                    received = 0;
+                    throw e;
+                }
+                if (n > 0) {
+                    received += n;
+                    observer.bytesReceived(receivedProgress, n);
+                }
+                return n;
+            }
+        };
+        return response.newBuilder()
+                .body(ResponseBody.create(Okio.buffer(source), body.contentType(), body.contentLength()))
+                .build();
+    }
+
+    private static RequestBody counting(RequestBody body, TransferObserver observer, TransferObserver.Progress progress,
+                                        AtomicLong sent) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return body.contentLength();
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return body.isOneShot();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                BufferedSink counted = Okio.buffer(new ForwardingSink(sink) {
+                    @Override
+                    public void write(Buffer source, long byteCount) throws IOException {
+                        super.write(source, byteCount);
+                        sent.addAndGet(byteCount);
+                        observer.bytesSent(progress, byteCount);
+                    }
+                });
+                body.writeTo(counted);
+                counted.emit();
+            }
+        };
+    }
+
+    /**
+     * 按请求方法和子资源得出OSS的操作名称
+     */
+    static String operationName(Request request) {
+        HttpUrl url = request.url();
+        boolean hasUploadId = url.queryParameterNames().contains("uploadId");
+        boolean copy = request.header("x-oss-copy-source") != null;
+        switch (request.method()) {
+            case "GET":
+                if (hasUploadId) {
+                    return "ListParts";
+                }
+                return url.encodedPath().equals("/") ? "ListObjects" : "GetObject";
+            case "HEAD":
+                return "HeadObject";
+            case "PUT":
+                if (url.queryParameterNames().contains("partNumber")) {
+                    return copy ? "UploadPartCopy" : "UploadPart";
+                }
+                return copy ? "CopyObject" : "PutObject";
+            case "POST":
+                if (url.queryParameterNames().contains("uploads")) {
+                    return "InitiateMultipartUpload";
+                }
+                if (hasUploadId) {
+                    return "CompleteMultipartUpload";
+                }
+                return url.queryParameterNames().contains("delete") ? "DeleteObjects" : "Post";
+            case "DELETE":
+                return hasUploadId ? "AbortMultipartUpload" : "DeleteObject";
+            default:
+                return request.method();
+        }
+    }
+
+    /**
+     * 请求的对象键值；列举请求返回前缀，便于按前缀分析
+     */
+    static String objectKey(Request request) {
+        HttpUrl url = request.url();
+        if (url.encodedPath().equals("/")) {
+            String prefix = url.queryParameter("prefix");
+            return prefix != null ? prefix : "";
+        }
+        return String.join("/", url.pathSegments());
+    }
+}
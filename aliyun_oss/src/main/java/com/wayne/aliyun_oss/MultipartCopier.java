@@ -0,0 +1,90 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Headers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 大文件的服务端复制：按分片以 UploadPartCopy 并发复制源文件的各个范围，数据不经过本机。
+ * 各分片都带源文件ETag条件，源文件在复制过程中被修改时放弃本次复制。
+ * UploadPartCopy 不会复制源文件的元数据，Content-Type 与 x-oss-meta-* 在初始化分片上传时带上
+ */
+class MultipartCopier {
+    private final AliyunOSS oss;
+    private final String sourceKey;
+    private final String targetKey;
+    private final long size;
+    private final String sourceETag;
+    private final int parallelism;
+    private final Headers metadata;
+
+    MultipartCopier(AliyunOSS oss, String sourceKey, String targetKey, long size, String sourceETag, int parallelism,
+                    Headers metadata) {
+        this.oss = oss;
+        this.sourceKey = sourceKey;
+        this.targetKey = targetKey;
+        this.size = size;
+        this.sourceETag = sourceETag;
+        this.parallelism = parallelism;
+        this.metadata = metadata;
+    }
+
+    boolean copy() throws IOException {
+        long partSize = Math.max(AliyunOSS.COPY_PART_SIZE, (size + AliyunOSS.MAX_PART_COUNT - 1) / AliyunOSS.MAX_PART_COUNT);
+        int partCount = (int) Math.max(1, (size + partSize - 1) / partSize);
+
+        String uploadId = oss.initiateMultipartUpload(targetKey, metadata);
+        if (uploadId == null) {
+            return false;
+        }
+
+        List<PartETag> parts = new ArrayList<>(partCount);
+        ExecutorService pool = AliyunOSS.newWorkerPool(Math.min(Math.max(1, parallelism), partCount), "oss-multipart-copy");
+        boolean success = true;
+        try {
+            CompletionService<PartETag> completionService = new ExecutorCompletionService<>(pool);
+            for (int i = 0; i < partCount; i++) {
+                final int partNumber = i + 1;
+                final long start = i * partSize;
+                final long end = Math.min(size, start + partSize) - 1;
+                completionService.submit(() -> {
+                    String eTag = oss.uploadPartCopy(sourceKey, sourceETag, targetKey, uploadId, partNumber, start, end);
+                    return eTag != null ? new PartETag(partNumber, eTag) : null;
+                });
+            }
+            for (int i = 0; i < partCount; i++) {
+                PartETag part = completionService.take().get();
+                if (part == null) {
+                    success = false;
+                    break;
+                }
+                parts.add(part);
+            }
+        } catch (ExecutionException e) {
+            oss.printError("复制分片失败：" + e.getCause());
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            oss.abortMultipartUpload(targetKey, uploadId);
+            throw new InterruptedIOException("分片复制被中断：" + sourceKey);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (!success) {
+            oss.abortMultipartUpload(targetKey, uploadId);
+            return false;
+        }
+
+        parts.sort(Comparator.comparingInt(PartETag::getPartNumber));
+        return oss.completeMultipartUpload(targetKey, uploadId, parts);
+    }
+}
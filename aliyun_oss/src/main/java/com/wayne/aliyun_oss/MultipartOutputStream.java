@@ -0,0 +1,251 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 长度未知的流式上传：写入的数据按分片大小缓存在循环使用的缓冲区中，
+ * 写满的分片在后台上传，同时生产者继续写入下一个分片。
+ * 缓冲区总数为最大在途分片数加一，全部占用时 write 阻塞，内存占用因此有上限。
+ * close 时完成分片上传；数据不足一个分片时改为一次普通上传
+ */
+public class MultipartOutputStream extends OutputStream {
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private final AliyunOSS oss;
+    private final String key;
+    private final int partSize;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final int maxBuffers;
+    private int allocatedBuffers;
+
+    private ExecutorService pool;
+    private final int maxInFlightParts;
+    private final List<Future<PartETag>> parts = new ArrayList<>();
+    private String uploadId;
+
+    private byte[] buffer;
+    private int count;
+    private long totalBytes;
+    private volatile boolean failed;
+    private boolean closed;
+
+    MultipartOutputStream(AliyunOSS oss, String key, int partSize, int maxInFlightParts) {
+        this.oss = oss;
+        this.key = key;
+        this.partSize = partSize;
+        this.maxInFlightParts = maxInFlightParts;
+        this.maxBuffers = maxInFlightParts + 1;
+        this.freeBuffers = new ArrayBlockingQueue<>(maxBuffers);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureWritable();
+        if (buffer == null) {
+            buffer = acquireBuffer();
+        }
+        buffer[count++] = (byte) b;
+        if (count == partSize) {
+            submitPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureWritable();
+        while (len > 0) {
+            if (buffer == null) {
+                buffer = acquireBuffer();
+            }
+            int n = Math.min(len, partSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == partSize) {
+                submitPart();
+            }
+        }
+    }
+
+    /**
+     * 所有在途分片都上传完成并归还缓冲区之前，新的缓冲区请求会阻塞
+     */
+    private byte[] acquireBuffer() throws IOException {
+        byte[] free = freeBuffers.poll();
+        if (free != null) {
+            return free;
+        }
+        if (allocatedBuffers < maxBuffers) {
+            allocatedBuffers++;
+            return new byte[partSize];
+        }
+        try {
+            return freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待上传缓冲区时被中断：" + key);
+        }
+    }
+
+    private void submitPart() throws IOException {
+        if (uploadId == null) {
+            uploadId = oss.initiateMultipartUpload(key);
+            if (uploadId == null) {
+                failed = true;
+                throw new IOException("初始化分片上传失败：" + key);
+            }
+            pool = AliyunOSS.newWorkerPool(maxInFlightParts, "oss-stream-upload");
+        }
+        if (parts.size() >= AliyunOSS.MAX_PART_COUNT) {
+            abort();
+            throw new IOException("分片数量超过上限 " + AliyunOSS.MAX_PART_COUNT + "，请增大分片大小：" + key);
+        }
+
+        final String id = uploadId;
+        final int partNumber = parts.size() + 1;
+        final byte[] data = buffer;
+        final int length = count;
+        totalBytes += length;
+        buffer = null;
+        count = 0;
+        parts.add(pool.submit(() -> {
+            try {
+                PartETag part = oss.uploadPart(key, id, partNumber,
+                        RequestBody.create(data, OCTET_STREAM, 0, length), contentMD5(data, length));
+                if (part == null) {
+                    failed = true;
+                }
+                return part;
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            } finally {
+                freeBuffers.offer(data);
+            }
+        }));
+    }
+
+    private static String contentMD5(byte[] data, int length) throws IOException {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            md.update(data, 0, length);
+            return Base64.getEncoder().encodeToString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("计算MD5失败：" + e.getMessage(), e);
+        }
+    }
+
+    private void ensureWritable() throws IOException {
+        if (closed) {
+            throw new IOException("输出流已关闭：" + key);
+        }
+        if (failed) {
+            abort();
+            throw new IOException("分片上传失败：" + key);
+        }
+    }
+
+    /**
+     * 写入全部完成后调用：上传剩余数据并完成分片上传，任一分片失败时放弃本次上传并抛出异常
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (failed) {
+            abort();
+            throw new IOException("分片上传失败：" + key);
+        }
+        closed = true;
+
+        if (uploadId == null) {
+            // 数据不足一个分片，直接普通上传
+            byte[] data = buffer != null ? buffer : new byte[0];
+            buffer = null;
+            if (!oss.putObject(key, RequestBody.create(data, OCTET_STREAM, 0, count), contentMD5(data, count))) {
+                throw new IOException("上传文件失败：" + key);
+            }
+            return;
+        }
+
+        try {
+            if (count > 0) {
+                submitPart();
+            }
+            List<PartETag> completed = new ArrayList<>(parts.size());
+            for (Future<PartETag> future : parts) {
+                PartETag part = future.get();
+                if (part == null) {
+                    throw new IOException("上传分片失败：" + key);
+                }
+                completed.add(part);
+            }
+            if (!oss.completeMultipartUpload(key, uploadId, completed, CRC64.combineParts(completed, partSize, totalBytes))) {
+                throw new IOException("完成分片上传失败：" + key);
+            }
+            oss.printInfo("成功分片上传文件：" + key);
+        } catch (ExecutionException e) {
+            abortQuietly();
+            throw new IOException("上传分片失败：" + key, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortQuietly();
+            throw new InterruptedIOException("分片上传被中断：" + key);
+        } catch (IOException e) {
+            abortQuietly();
+            throw e;
+        } finally {
+            pool.shutdownNow();
+            freeBuffers.clear();
+        }
+    }
+
+    /**
+     * 放弃本次上传：停止后台分片上传并删除已上传的分片，对象不会被创建。
+     * 生产者出错时应调用此方法而不是 close
+     */
+    public void abort() throws IOException {
+        closed = true;
+        buffer = null;
+        freeBuffers.clear();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        if (uploadId != null) {
+            String id = uploadId;
+            uploadId = null;
+            oss.abortMultipartUpload(key, id);
+        }
+    }
+
+    private void abortQuietly() {
+        if (uploadId == null) {
+            return;
+        }
+        try {
+            oss.abortMultipartUpload(key, uploadId);
+        } catch (IOException e) {
+            oss.printWarning("取消分片上传失败：" + e.getMessage());
+        }
+    }
+}
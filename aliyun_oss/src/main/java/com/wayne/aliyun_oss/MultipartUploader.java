@@ -0,0 +1,175 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 分片上传引擎：按固定分片大小切分文件，由有界线程池并发上传各个分片。
+ * 启用断点续传时，已完成分片会写入源文件旁的断点记录，重新上传时只补传缺失的分片。
+ */
+class MultipartUploader {
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private final AliyunOSS oss;
+    private final String key;
+    private final Path path;
+    private final long partSize;
+    private final int parallelism;
+    private final boolean resumable;
+    private final Headers metadata;
+    private final TransferObserver.Progress progress;
+
+    MultipartUploader(AliyunOSS oss, String key, Path path, long partSize, int parallelism, boolean resumable,
+                      Headers metadata, TransferObserver.Progress progress) {
+        this.oss = oss;
+        this.key = key;
+        this.path = path;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+        this.resumable = resumable;
+        this.metadata = metadata;
+        this.progress = progress;
+    }
+
+    boolean upload() throws IOException {
+        long fileSize = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        Path checkpointFile = UploadCheckpoint.pathFor(path, key);
+
+        UploadCheckpoint checkpoint = resumable ? resume(checkpointFile, fileSize, lastModified) : null;
+        if (checkpoint == null) {
+            // OSS最多支持10000个分片，文件过大时自动放大分片
+            long effectivePartSize = Math.max(partSize, (fileSize + AliyunOSS.MAX_PART_COUNT - 1) / AliyunOSS.MAX_PART_COUNT);
+            String uploadId = oss.initiateMultipartUpload(key, metadata);
+            if (uploadId == null) {
+                return false;
+            }
+            checkpoint = new UploadCheckpoint(checkpointFile, key, uploadId, effectivePartSize, fileSize, lastModified);
+            if (resumable) {
+                try {
+                    checkpoint.save();
+                } catch (IOException e) {
+                    oss.printWarning("无法写入断点记录，将不支持续传：" + e.getMessage());
+                }
+            }
+        }
+
+        long effectivePartSize = checkpoint.getPartSize();
+        String uploadId = checkpoint.getUploadId();
+        int partCount = (int) Math.max(1, (fileSize + effectivePartSize - 1) / effectivePartSize);
+
+        List<PartETag> parts = new ArrayList<>(partCount);
+        ExecutorService pool = AliyunOSS.newWorkerPool(Math.min(parallelism, partCount), "oss-multipart-upload");
+        boolean success = true;
+        try {
+            CompletionService<PartETag> completionService = new ExecutorCompletionService<>(pool);
+            int submitted = 0;
+            for (int i = 0; i < partCount; i++) {
+                final int partNumber = i + 1;
+                String doneETag = checkpoint.getPartETag(partNumber);
+                if (doneETag != null) {
+                    parts.add(new PartETag(partNumber, doneETag, checkpoint.getPartCrc64(partNumber)));
+                    continue;
+                }
+                final long offset = i * effectivePartSize;
+                final long length = Math.min(effectivePartSize, fileSize - offset);
+                final UploadCheckpoint journal = checkpoint;
+                completionService.submit(() -> uploadPart(journal, uploadId, partNumber, offset, length));
+                submitted++;
+            }
+            if (submitted < partCount) {
+                oss.printInfo("从断点继续上传：" + key + "，已完成 " + (partCount - submitted) + "/" + partCount + " 个分片");
+            }
+            for (int i = 0; i < submitted; i++) {
+                PartETag part = completionService.take().get();
+                if (part == null) {
+                    success = false;
+                    break;
+                }
+                parts.add(part);
+            }
+        } catch (ExecutionException e) {
+            oss.printError("上传分片失败：" + e.getCause());
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!resumable) {
+                oss.abortMultipartUpload(key, uploadId);
+            }
+            throw new InterruptedIOException("分片上传被中断：" + key);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (!success) {
+            // 可续传时保留分片与断点记录，下次从缺失的分片继续
+            if (!resumable) {
+                oss.abortMultipartUpload(key, uploadId);
+            }
+            return false;
+        }
+
+        parts.sort(Comparator.comparingInt(PartETag::getPartNumber));
+        // 各分片的CRC在上传时已分别算出，合并即得整个文件的CRC，无需再读一遍文件
+        Long crc64 = CRC64.combineParts(parts, effectivePartSize, fileSize);
+        if (!oss.completeMultipartUpload(key, uploadId, parts, crc64)) {
+            return false;
+        }
+        if (resumable) {
+            checkpoint.delete();
+        }
+        return true;
+    }
+
+    private UploadCheckpoint resume(Path checkpointFile, long fileSize, long lastModified) throws IOException {
+        UploadCheckpoint checkpoint = UploadCheckpoint.load(checkpointFile);
+        if (checkpoint == null) {
+            return null;
+        }
+        if (!checkpoint.matches(key, fileSize, lastModified)) {
+            // 源文件已变化，旧分片不可再用
+            oss.printWarning("源文件已变化，放弃旧的断点记录：" + path);
+            // 分片上传属于记录中的键值，用当前键值放弃会因 NoSuchUpload 失败而留下计费的旧分片
+            oss.abortMultipartUpload(checkpoint.getKey(), checkpoint.getUploadId());
+            checkpoint.delete();
+            return null;
+        }
+        if (!oss.multipartUploadExists(key, checkpoint.getUploadId())) {
+            oss.printWarning("断点记录中的分片上传已失效，重新上传：" + key);
+            checkpoint.delete();
+            return null;
+        }
+        return checkpoint;
+    }
+
+    private PartETag uploadPart(UploadCheckpoint checkpoint, String uploadId, int partNumber, long offset, long length)
+            throws IOException {
+        // 每个分片使用独立的通道与缓冲区做定位读取，分片之间不共享缓冲区；
+        // CRC64 在发送时同步计算，不再为MD5预先读一遍分片
+        FileRequestBody body = new FileRequestBody(path, offset, length, OCTET_STREAM);
+        PartETag part = oss.uploadPart(key, uploadId, partNumber, body, "", progress);
+        if (part == null) {
+            return null;
+        }
+        if (resumable) {
+            try {
+                checkpoint.addPart(part);
+            } catch (IOException e) {
+                oss.printWarning("写入断点记录失败：" + e.getMessage());
+            }
+        }
+        return part;
+    }
+}
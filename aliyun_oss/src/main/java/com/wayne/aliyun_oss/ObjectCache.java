@@ -0,0 +1,306 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Headers;
+import okhttp3.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * 对象的本地磁盘读穿缓存：按总大小做LRU淘汰；TTL内直接命中，过期后用 If-None-Match 重新校验；
+ * 同一键值的并发请求合并为一次获取
+ */
+class ObjectCache {
+    private static final String DATA_SUFFIX = ".data";
+    private static final String META_SUFFIX = ".meta";
+
+    private final AliyunOSS oss;
+    private final Path dir;
+    private final long maxBytes;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Entry>> inflight = new ConcurrentHashMap<>();
+    private long totalBytes;
+
+    ObjectCache(AliyunOSS oss, Path dir, long maxBytes, long ttlMillis) throws IOException {
+        this.oss = oss;
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        Files.createDirectories(dir);
+        loadEntries();
+    }
+
+    /**
+     * 获取对象的本地缓存文件，必要时从OSS获取或重新校验
+     * @param key 键值
+     * @return 缓存条目，对象不存在时返回null
+     * @throws UncacheableException 对象超过缓存容量，调用方应直接读取。
+     *         返回的条目可能随时被其他线程淘汰，读取数据须通过 open
+     */
+    Entry get(String key) throws IOException {
+        Entry cached;
+        synchronized (this) {
+            cached = entries.get(key);
+        }
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt < ttlMillis) {
+            return cached;
+        }
+
+        // 同一键值只允许一个线程发起请求，其他线程等待其结果
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inflight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            Entry entry = fetch(key, cached);
+            mine.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    private Entry fetch(String key, Entry cached) throws IOException {
+        Headers headers = cached != null && cached.eTag != null
+                ? Headers.of("If-None-Match", cached.eTag)
+                : Headers.of();
+        try (Response response = oss.executeGet(key, headers)) {
+            if (response.code() == 304 && cached != null) {
+                Entry refreshed = new Entry(key, cached.name, cached.eTag, cached.contentType, cached.size, System.currentTimeMillis());
+                synchronized (this) {
+                    // 校验期间条目可能已被淘汰或丢弃，数据文件还在时才能续期
+                    if (Files.isRegularFile(dataPath(cached))) {
+                        writeMeta(refreshed);
+                        put(refreshed);
+                        return refreshed;
+                    }
+                }
+                response.close();
+                return fetch(key, null);
+            }
+            if (response.code() == 404) {
+                remove(key);
+                return null;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+                throw new IOException("获取文件失败：" + errorMessage);
+            }
+            long contentLength = response.body().contentLength();
+            if (contentLength > maxBytes) {
+                throw new UncacheableException("对象超过缓存容量：" + key);
+            }
+
+            String name = cached != null ? cached.name : fileName(key);
+            Path tmp = Files.createTempFile(dir, name, ".tmp");
+            try {
+                CRC64 crc = new CRC64();
+                try (InputStream in = new CheckedInputStream(response.body().byteStream(), crc);
+                     OutputStream out = Files.newOutputStream(tmp)) {
+                    // 未返回长度（例如分块传输）时边写边检查，超过容量即放弃，不把整个对象写到磁盘上
+                    byte[] buffer = new byte[8192];
+                    long written = 0;
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        written += n;
+                        if (written > maxBytes) {
+                            throw new UncacheableException("对象超过缓存容量：" + key);
+                        }
+                        out.write(buffer, 0, n);
+                    }
+                }
+                if (!oss.verifyCrc64(response.header(Crc64RequestBody.CRC64_HEADER), crc.getValue(), key)) {
+                    throw new IOException("缓存文件CRC64校验失败：" + key);
+                }
+                long size = Files.size(tmp);
+                Entry entry = new Entry(key, name, response.header("ETag"), response.header("Content-Type"), size, System.currentTimeMillis());
+                synchronized (this) {
+                    CheckpointFiles.moveReplacing(tmp, dir.resolve(name + DATA_SUFFIX));
+                    writeMeta(entry);
+                    put(entry);
+                }
+                return entry;
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private synchronized void put(Entry entry) {
+        Entry previous = entries.put(entry.key, entry);
+        if (previous != null) {
+            totalBytes -= previous.size;
+        }
+        totalBytes += entry.size;
+        // 淘汰最久未使用的条目，保留刚写入的条目
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Entry victim = eldest.next();
+            if (victim == entry) {
+                continue;
+            }
+            eldest.remove();
+            totalBytes -= victim.size;
+            deleteFiles(victim.name);
+        }
+    }
+
+    /**
+     * 丢弃键值的缓存条目，本实例写入、复制或删除该对象后调用，之后的读取重新从OSS获取
+     */
+    void invalidate(String key) {
+        remove(key);
+    }
+
+    private synchronized void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.size;
+            deleteFiles(removed.name);
+        }
+    }
+
+    /**
+     * 打开条目的数据文件。淘汰和替换都在锁内进行，在锁内打开可保证不会打开到写了一半的文件；
+     * 已打开的文件即使随后被淘汰删除也能完整读完
+     * @throws UncacheableException 条目在 get 之后已被淘汰，调用方应直接读取
+     */
+    InputStream open(Entry entry) throws IOException {
+        synchronized (this) {
+            try {
+                return Files.newInputStream(dataPath(entry));
+            } catch (NoSuchFileException e) {
+                throw new UncacheableException("缓存文件已被淘汰：" + entry.key);
+            }
+        }
+    }
+
+    private Path dataPath(Entry entry) {
+        return dir.resolve(entry.name + DATA_SUFFIX);
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("key", entry.key);
+        if (entry.eTag != null) {
+            properties.setProperty("eTag", entry.eTag);
+        }
+        if (entry.contentType != null) {
+            properties.setProperty("contentType", entry.contentType);
+        }
+        properties.setProperty("size", String.valueOf(entry.size));
+        properties.setProperty("fetchedAt", String.valueOf(entry.fetchedAt));
+        CheckpointFiles.store(properties, dir.resolve(entry.name + META_SUFFIX));
+    }
+
+    private void loadEntries() {
+        File[] metaFiles = dir.toFile().listFiles((d, name) -> name.endsWith(META_SUFFIX));
+        if (metaFiles == null) {
+            return;
+        }
+        List<Entry> loaded = new ArrayList<>();
+        for (File metaFile : metaFiles) {
+            String name = metaFile.getName().substring(0, metaFile.getName().length() - META_SUFFIX.length());
+            Properties properties = CheckpointFiles.load(metaFile.toPath());
+            try {
+                if (properties != null && Files.isRegularFile(dir.resolve(name + DATA_SUFFIX))) {
+                    loaded.add(new Entry(properties.getProperty("key"), name, properties.getProperty("eTag"),
+                            properties.getProperty("contentType"),
+                            Long.parseLong(properties.getProperty("size")),
+                            Long.parseLong(properties.getProperty("fetchedAt"))));
+                    continue;
+                }
+            } catch (RuntimeException ignored) {
+            }
+            deleteFiles(name);
+        }
+        // 以获取时间近似最近使用顺序
+        loaded.sort((a, b) -> Long.compare(a.fetchedAt, b.fetchedAt));
+        for (Entry entry : loaded) {
+            if (entry.key != null) {
+                put(entry);
+            }
+        }
+    }
+
+    private void deleteFiles(String name) {
+        try {
+            Files.deleteIfExists(dir.resolve(name + DATA_SUFFIX));
+            Files.deleteIfExists(dir.resolve(name + META_SUFFIX));
+        } catch (IOException e) {
+            oss.printWarning("删除缓存文件失败：" + e.getMessage());
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            return LocalHashCache.toHex(digest).toLowerCase();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    static final class Entry {
+        final String key;
+        final String name;
+        final String eTag;
+        final String contentType;
+        final long size;
+        final long fetchedAt;
+
+        Entry(String key, String name, String eTag, String contentType, long size, long fetchedAt) {
+            this.key = key;
+            this.name = name;
+            this.eTag = eTag;
+            this.contentType = contentType;
+            this.size = size;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    /**
+     * 对象无法从缓存读取：超过缓存容量，或缓存文件在读取前已被淘汰
+     */
+    static final class UncacheableException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UncacheableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+
+/**
+ * 带 If-Match 条件的请求返回412，说明对象在传输过程中已被修改
+ */
+class ObjectChangedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    ObjectChangedException(String key) {
+        super("对象已被修改：" + key);
+    }
+}
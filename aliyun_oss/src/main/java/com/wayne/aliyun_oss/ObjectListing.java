@@ -0,0 +1,39 @@
+package com.wayne.aliyun_oss;
+
+import java.util.List;
+
+/**
+ * 一页列举结果
+ */
+class ObjectListing {
+    private final List<ObjectSummary> objectSummaries;
+    private final List<String> commonPrefixes;
+    private final boolean truncated;
+    private final String nextMarker;
+
+    ObjectListing(List<ObjectSummary> objectSummaries, List<String> commonPrefixes, boolean truncated, String nextMarker) {
+        this.objectSummaries = objectSummaries;
+        this.commonPrefixes = commonPrefixes;
+        this.truncated = truncated;
+        this.nextMarker = nextMarker;
+    }
+
+    List<ObjectSummary> getObjectSummaries() {
+        return objectSummaries;
+    }
+
+    /**
+     * 使用分隔符列举时，当前层级下的“子目录”前缀
+     */
+    List<String> getCommonPrefixes() {
+        return commonPrefixes;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    String getNextMarker() {
+        return nextMarker;
+    }
+}
@@ -0,0 +1,80 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 按页惰性列举对象的迭代器：沿着 NextMarker 翻页，
+ * 在消费当前页的同时后台预取下一页，内存中最多保留约两页数据
+ */
+class ObjectListingIterator implements Iterator<ObjectSummary> {
+    private final AliyunOSS oss;
+    private final String prefix;
+    private final Executor executor;
+    private Iterator<ObjectSummary> current = Collections.emptyIterator();
+    private CompletableFuture<ObjectListing> nextPage;
+    private boolean started;
+
+    ObjectListingIterator(AliyunOSS oss, String prefix, Executor executor) {
+        this.oss = oss;
+        this.prefix = prefix;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            ObjectListing page;
+            if (!started) {
+                started = true;
+                page = fetch("");
+            } else if (nextPage != null) {
+                page = await(nextPage);
+            } else {
+                return false;
+            }
+            // 先发起下一页请求，再把当前页交给调用方消费
+            if (page.isTruncated() && page.getNextMarker() != null) {
+                String marker = page.getNextMarker();
+                nextPage = CompletableFuture.supplyAsync(() -> fetch(marker), executor);
+            } else {
+                nextPage = null;
+            }
+            current = page.getObjectSummaries().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public ObjectSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    private ObjectListing fetch(String marker) {
+        try {
+            return oss.listObjectsPage(prefix, marker, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ObjectListing await(CompletableFuture<ObjectListing> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Headers;
+
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 通过HEAD请求获取的对象元数据
+ */
+public class ObjectMetadata {
+    private final long contentLength;
+    private final String eTag;
+    private final Date lastModified;
+    private final String contentType;
+    private final Headers headers;
+
+    ObjectMetadata(long contentLength, String eTag, Date lastModified, String contentType, Headers headers) {
+        this.contentLength = contentLength;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.contentType = contentType;
+        this.headers = headers;
+    }
+
+    static ObjectMetadata fromSummary(ObjectSummary summary) {
+        return new ObjectMetadata(summary.getSize(), summary.getETag(), summary.getLastModified(), null, Headers.of());
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 获取原始响应头，例如 x-oss-meta-* 自定义元数据
+     * @param name 响应头名称
+     * @return 响应头的值，不存在时返回null
+     */
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * 复制对象时需要带到目标对象上的请求头：Content-Type 与 x-oss-meta-* 自定义元数据
+     */
+    Headers copyableHeaders() {
+        Headers.Builder builder = new Headers.Builder();
+        if (contentType != null) {
+            builder.add("Content-Type", contentType);
+        }
+        for (String name : headers.names()) {
+            if (name.toLowerCase(Locale.ROOT).startsWith("x-oss-meta-")) {
+                builder.add(name, headers.get(name));
+            }
+        }
+        return builder.build();
+    }
+}
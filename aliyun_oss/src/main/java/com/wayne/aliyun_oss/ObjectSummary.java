@@ -0,0 +1,42 @@
+package com.wayne.aliyun_oss;
+
+import java.util.Date;
+
+/**
+ * 列举结果中的单个对象信息
+ */
+public class ObjectSummary {
+    private final String key;
+    private final long size;
+    private final String eTag;
+    private final Date lastModified;
+    private final String storageClass;
+
+    public ObjectSummary(String key, long size, String eTag, Date lastModified, String storageClass) {
+        this.key = key;
+        this.size = size;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.storageClass = storageClass;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public String getStorageClass() {
+        return storageClass;
+    }
+}
@@ -0,0 +1,395 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 分片并发列举：把键空间切成互不重叠、按字典序排列的分片，
+ * 每个分片独立沿 marker 翻页并发列举，结果按分片顺序拼接成一个有序的流。
+ * 一层之内的文件与子前缀能在一页内列完时按子前缀分片，子前缀不多时每个子前缀再按 marker 区间细分；
+ * 一层列不完时（例如没有目录结构的扁平前缀）直接按 marker 区间分片，区间边界通过以少量 max-keys=1 的探测请求采样得到。
+ * 当前分片之后最多 parallelism 个分片提前列举，每个分片最多缓存 bufferedPages 页
+ */
+class ParallelObjectLister implements Iterator<ObjectSummary>, AutoCloseable {
+    private static final int MAX_DISCOVERY_DEPTH = 4;
+    /**
+     * 每个并发分片对应的采样探测次数，分片多于并发数时慢的分片不会拖住其余线程
+     */
+    private static final int SAMPLES_PER_WORKER = 4;
+    /**
+     * 采样时追加在前缀之后的候选字符，覆盖对象键中常见的字符
+     */
+    private static final String SAMPLE_ALPHABET = "!-.0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz~";
+
+    private final AliyunOSS oss;
+    private final int parallelism;
+    private final int bufferedPages;
+    private final ExecutorService pool;
+    private List<Unit> units;
+    private int unitIndex;
+    private int startedIndex;
+    private Shard currentShard;
+    private Iterator<ObjectSummary> current = Collections.emptyIterator();
+
+    private ParallelObjectLister(AliyunOSS oss, int parallelism, int bufferedPages) {
+        this.oss = oss;
+        this.parallelism = parallelism;
+        this.bufferedPages = bufferedPages;
+        this.pool = AliyunOSS.newWorkerPool(parallelism, "oss-parallel-list");
+    }
+
+    static ParallelObjectLister open(AliyunOSS oss, String prefix, int parallelism, int bufferedPages) throws IOException {
+        ParallelObjectLister lister = new ParallelObjectLister(oss, Math.max(1, parallelism), Math.max(1, bufferedPages));
+        try {
+            lister.units = lister.discover(prefix, 0);
+        } catch (IOException | RuntimeException e) {
+            lister.close();
+            throw e;
+        }
+        return lister;
+    }
+
+    /**
+     * 用分隔符列举划分分片；若某一层只有一个子前缀，则继续向下一层划分。
+     * 一页列不完的层不再逐页收集，改为按 marker 区间划分；子前缀不多时每个子前缀再按区间划分
+     */
+    private List<Unit> discover(String prefix, int depth) throws IOException {
+        ObjectListing page = oss.listObjectsPage(prefix, "", "/");
+        if (page.isTruncated() && page.getNextMarker() != null) {
+            return discoverRanges(prefix);
+        }
+        List<Unit> units = new ArrayList<>();
+        for (ObjectSummary summary : page.getObjectSummaries()) {
+            units.add(new Unit(summary.getKey(), Collections.singletonList(summary), null));
+        }
+        for (String commonPrefix : page.getCommonPrefixes()) {
+            units.add(new Unit(commonPrefix, null, new Shard(commonPrefix, "", null)));
+        }
+        if (units.size() == 1 && units.get(0).shard != null && depth < MAX_DISCOVERY_DEPTH) {
+            return discover(units.get(0).name, depth + 1);
+        }
+        // 同一层的文件与前缀互不包含，按名称排序即为整体键的顺序
+        units.sort((a, b) -> compareUtf8(a.name, b.name));
+        int prefixCount = page.getCommonPrefixes().size();
+        if (prefixCount == 0 || prefixCount > parallelism * SAMPLES_PER_WORKER || depth >= MAX_DISCOVERY_DEPTH) {
+            // 子前缀足够多时各线程已有足够的分片可列举
+            return units;
+        }
+        return splitPrefixes(units, prefixCount);
+    }
+
+    /**
+     * 并发列举每个子前缀的第一页：一页列完的子前缀直接作为结果，列不完的再按采样边界切成区间，
+     * 避免单个很大的子前缀只由一个线程顺序列举。采样请求的总数按列不完的子前缀个数分摊
+     */
+    private List<Unit> splitPrefixes(List<Unit> units, int prefixCount) throws IOException {
+        List<String> prefixes = new ArrayList<>(prefixCount);
+        List<Future<ObjectListing>> futures = new ArrayList<>(prefixCount);
+        for (Unit unit : units) {
+            if (unit.shard != null) {
+                prefixes.add(unit.name);
+                futures.add(pool.submit(() -> oss.listObjectsPage(unit.name, "", null)));
+            }
+        }
+        List<ObjectListing> firstPages = awaitAll(futures, prefixes.get(0));
+        int truncated = 0;
+        for (ObjectListing first : firstPages) {
+            if (first.isTruncated()) {
+                truncated++;
+            }
+        }
+        int samples = truncated > 0 ? parallelism * SAMPLES_PER_WORKER / truncated : 0;
+
+        List<Unit> split = new ArrayList<>();
+        int index = 0;
+        for (Unit unit : units) {
+            if (unit.shard == null) {
+                split.add(unit);
+            } else {
+                split.addAll(rangesAfter(prefixes.get(index), firstPages.get(index), samples));
+                index++;
+            }
+        }
+        return split;
+    }
+
+    private List<Unit> discoverRanges(String prefix) throws IOException {
+        return rangesAfter(prefix, oss.listObjectsPage(prefix, "", null), parallelism * SAMPLES_PER_WORKER);
+    }
+
+    /**
+     * 不带分隔符列举的第一页直接作为结果的开头，其后的键空间按采样得到的边界切成区间：
+     * (第一页末尾, s1]、(s1, s2]、…、(sn, 前缀末尾)，每个区间是一个分片
+     * @param samples 每组采样的探测次数，为0时第一页之后整体作为一个分片
+     */
+    private List<Unit> rangesAfter(String prefix, ObjectListing first, int samples) throws IOException {
+        List<ObjectSummary> objects = first.getObjectSummaries();
+        List<Unit> units = new ArrayList<>();
+        if (!objects.isEmpty()) {
+            units.add(new Unit(prefix, objects, null));
+        }
+        if (!first.isTruncated() || first.getNextMarker() == null || objects.isEmpty()) {
+            return units;
+        }
+
+        String lastKey = objects.get(objects.size() - 1).getKey();
+        // 粗粒度在前缀之后采样，细粒度在第一页键的公共前缀之后采样，兼顾分散的目录和同一前缀下连续的键
+        List<String> candidates = sampleCandidates(prefix, samples);
+        String stem = commonPrefix(objects.get(0).getKey(), lastKey);
+        if (stem.length() > prefix.length()) {
+            candidates.addAll(sampleCandidates(stem, samples));
+        }
+
+        TreeSet<String> boundaries = new TreeSet<>(ParallelObjectLister::compareUtf8);
+        for (String key : probe(prefix, candidates)) {
+            if (key != null && compareUtf8(key, lastKey) > 0) {
+                boundaries.add(key);
+            }
+        }
+
+        String start = lastKey;
+        for (String boundary : boundaries) {
+            units.add(new Unit(start, null, new Shard(prefix, start, boundary)));
+            start = boundary;
+        }
+        units.add(new Unit(start, null, new Shard(prefix, start, null)));
+        return units;
+    }
+
+    private static List<String> sampleCandidates(String stem, int samples) {
+        int count = Math.min(SAMPLE_ALPHABET.length(), samples);
+        List<String> candidates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            candidates.add(stem + SAMPLE_ALPHABET.charAt(i * SAMPLE_ALPHABET.length() / count));
+        }
+        return candidates;
+    }
+
+    /**
+     * 并发探测每个候选 marker 之后的第一个键
+     */
+    private List<String> probe(String prefix, List<String> markers) throws IOException {
+        List<Future<String>> futures = new ArrayList<>(markers.size());
+        for (String marker : markers) {
+            futures.add(pool.submit(() -> {
+                List<ObjectSummary> objects = oss.listObjectsPage(prefix, marker, null, 1).getObjectSummaries();
+                return objects.isEmpty() ? null : objects.get(0).getKey();
+            }));
+        }
+        return awaitAll(futures, prefix);
+    }
+
+    private static <T> List<T> awaitAll(List<Future<T>> futures, String prefix) throws IOException {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("划分列举分片失败：" + prefix, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("划分列举分片被中断：" + prefix);
+        }
+        return results;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (currentShard != null) {
+                Page page = currentShard.take();
+                if (page.error != null) {
+                    close();
+                    throw new UncheckedIOException(page.error);
+                }
+                if (page.objects == null) {
+                    currentShard = null;
+                    unitIndex++;
+                } else {
+                    current = page.objects.iterator();
+                }
+                continue;
+            }
+            if (unitIndex >= units.size()) {
+                close();
+                return false;
+            }
+            startShardsAhead();
+            Unit unit = units.get(unitIndex);
+            if (unit.objects != null) {
+                current = unit.objects.iterator();
+                unitIndex++;
+            } else {
+                currentShard = unit.shard;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public ObjectSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    private void startShardsAhead() {
+        startedIndex = Math.max(startedIndex, unitIndex);
+        int activeShards = 0;
+        for (int i = unitIndex; i < startedIndex; i++) {
+            if (units.get(i).shard != null) {
+                activeShards++;
+            }
+        }
+        while (startedIndex < units.size() && activeShards < parallelism) {
+            Shard shard = units.get(startedIndex++).shard;
+            if (shard != null) {
+                shard.start(this);
+                activeShards++;
+            }
+        }
+    }
+
+    private void listShard(Shard shard) {
+        Page last;
+        try {
+            String marker = shard.startAfter;
+            boolean reachedEnd = false;
+            while (!reachedEnd) {
+                ObjectListing page = oss.listObjectsPage(shard.prefix, marker, null);
+                List<ObjectSummary> objects = page.getObjectSummaries();
+                if (shard.endInclusive != null) {
+                    // 区间分片读到上界之后的键即结束，之后的键属于下一个分片
+                    int end = 0;
+                    while (end < objects.size() && compareUtf8(objects.get(end).getKey(), shard.endInclusive) <= 0) {
+                        end++;
+                    }
+                    if (end < objects.size()) {
+                        objects = objects.subList(0, end);
+                        reachedEnd = true;
+                    }
+                }
+                shard.queue.put(new Page(objects, null));
+                if (!page.isTruncated() || page.getNextMarker() == null) {
+                    break;
+                }
+                marker = page.getNextMarker();
+            }
+            last = new Page(null, null);
+        } catch (IOException e) {
+            last = new Page(null, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            shard.queue.put(last);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 按UTF-8字节序（即码点顺序）比较，与OSS返回结果的排序一致
+     */
+    static int compareUtf8(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static String commonPrefix(String a, String b) {
+        int i = 0;
+        while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (i > 0 && Character.isHighSurrogate(a.charAt(i - 1))) {
+            i--;
+        }
+        return a.substring(0, i);
+    }
+
+    private static final class Unit {
+        private final String name;
+        private final List<ObjectSummary> objects;
+        private final Shard shard;
+
+        private Unit(String name, List<ObjectSummary> objects, Shard shard) {
+            this.name = name;
+            this.objects = objects;
+            this.shard = shard;
+        }
+    }
+
+    /**
+     * 一个分片：前缀下键在 (startAfter, endInclusive] 之间的对象，endInclusive 为 null 表示直到前缀末尾
+     */
+    private static final class Shard {
+        private final String prefix;
+        private final String startAfter;
+        private final String endInclusive;
+        private BlockingQueue<Page> queue;
+
+        private Shard(String prefix, String startAfter, String endInclusive) {
+            this.prefix = prefix;
+            this.startAfter = startAfter;
+            this.endInclusive = endInclusive;
+        }
+
+        private void start(ParallelObjectLister lister) {
+            queue = new ArrayBlockingQueue<>(lister.bufferedPages + 1);
+            lister.pool.execute(() -> lister.listShard(this));
+        }
+
+        private Page take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("并发列举被中断：" + prefix));
+            }
+        }
+    }
+
+    private static final class Page {
+        private final List<ObjectSummary> objects;
+        private final IOException error;
+
+        private Page(List<ObjectSummary> objects, IOException error) {
+            this.objects = objects;
+            this.error = error;
+        }
+    }
+}
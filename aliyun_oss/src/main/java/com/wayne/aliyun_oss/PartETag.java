@@ -0,0 +1,32 @@
+package com.wayne.aliyun_oss;
+
+/**
+ * 分片上传中已完成分片的编号与ETag，以及本地计算的分片CRC64（未知时为null）
+ */
+class PartETag {
+    private final int partNumber;
+    private final String eTag;
+    private final Long crc64;
+
+    PartETag(int partNumber, String eTag) {
+        this(partNumber, eTag, null);
+    }
+
+    PartETag(int partNumber, String eTag, Long crc64) {
+        this.partNumber = partNumber;
+        this.eTag = eTag;
+        this.crc64 = crc64;
+    }
+
+    int getPartNumber() {
+        return partNumber;
+    }
+
+    String getETag() {
+        return eTag;
+    }
+
+    Long getCrc64() {
+        return crc64;
+    }
+}
@@ -0,0 +1,176 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 分段并发下载引擎：把对象切成多个Range请求并发获取，
+ * 每段直接按偏移写入预先分配好大小的文件，内存占用与对象大小无关。
+ * 数据先写入 .part 临时文件，旁边的断点记录保存对象ETag与已完成分段，
+ * 重试时只补齐缺失的分段；所有请求带 If-Match，对象被修改后从头重新下载。
+ */
+class RangedDownloader {
+    static final String PART_SUFFIX = ".part";
+
+    private final AliyunOSS oss;
+    private final String key;
+    private final Path target;
+    private final long rangeSize;
+    private final int parallelism;
+    private final TransferObserver.Progress progress;
+    private ObjectMetadata metadata;
+
+    RangedDownloader(AliyunOSS oss, String key, ObjectMetadata metadata, Path target, long rangeSize, int parallelism,
+                     TransferObserver.Progress progress) {
+        this.oss = oss;
+        this.key = key;
+        this.metadata = metadata;
+        this.target = target;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.progress = progress;
+    }
+
+    boolean download() throws IOException {
+        Path partFile = Paths.get(target.toString() + PART_SUFFIX);
+        Path checkpointFile = DownloadCheckpoint.pathFor(partFile);
+        try {
+            return download(partFile, checkpointFile);
+        } catch (ObjectChangedException e) {
+            // 对象在下载过程中被修改，丢弃已下载的分段后重新开始
+            oss.printWarning("对象已被修改，重新下载：" + key);
+            Files.deleteIfExists(partFile);
+            Files.deleteIfExists(checkpointFile);
+            metadata = oss.getObjectMetadata(key);
+            if (metadata == null) {
+                return false;
+            }
+            try {
+                return download(partFile, checkpointFile);
+            } catch (ObjectChangedException again) {
+                oss.printWarning("对象在下载过程中持续被修改：" + key);
+                return false;
+            }
+        }
+    }
+
+    private boolean download(Path partFile, Path checkpointFile) throws IOException {
+        long size = metadata.getContentLength();
+        String eTag = metadata.getETag();
+
+        DownloadCheckpoint checkpoint = DownloadCheckpoint.load(checkpointFile);
+        if (checkpoint != null && (!checkpoint.matches(key, eTag, size) || !Files.isRegularFile(partFile))) {
+            checkpoint.delete();
+            checkpoint = null;
+        }
+        if (checkpoint == null) {
+            checkpoint = new DownloadCheckpoint(checkpointFile, key, eTag, size, rangeSize);
+            try (RandomAccessFile file = new RandomAccessFile(partFile.toFile(), "rw")) {
+                file.setLength(size);
+            }
+            checkpoint.save();
+        }
+
+        long effectiveRangeSize = checkpoint.getRangeSize();
+        int rangeCount = (int) Math.max(1, (size + effectiveRangeSize - 1) / effectiveRangeSize);
+        if (checkpoint.completedCount() > 0) {
+            oss.printInfo("从断点继续下载：" + key + "，已完成 " + checkpoint.completedCount() + "/" + rangeCount + " 个分段");
+        }
+
+        boolean success = true;
+        ExecutorService pool = AliyunOSS.newWorkerPool(Math.min(parallelism, rangeCount), "oss-ranged-download");
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+            List<Future<Boolean>> futures = new ArrayList<>(rangeCount);
+            for (int i = 0; i < rangeCount && size > 0; i++) {
+                if (checkpoint.isCompleted(i)) {
+                    continue;
+                }
+                final int index = i;
+                final long start = i * effectiveRangeSize;
+                final long end = Math.min(size, start + effectiveRangeSize) - 1;
+                final DownloadCheckpoint journal = checkpoint;
+                futures.add(pool.submit(() -> {
+                    CRC64 crc = new CRC64();
+                    if (!oss.downloadRange(key, start, end, eTag, channel, crc, progress)) {
+                        return false;
+                    }
+                    journal.markCompleted(index, crc.getValue());
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                if (!future.get()) {
+                    success = false;
+                    break;
+                }
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ObjectChangedException) {
+                throw (ObjectChangedException) e.getCause();
+            }
+            oss.printError("分段下载失败：" + e.getCause());
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("分段下载被中断：" + key);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (!success) {
+            // 可续传时保留 .part 文件与断点记录，下次只下载缺失的分段
+            if (!checkpoint.isResumable()) {
+                Files.deleteIfExists(partFile);
+            }
+            return false;
+        }
+        if (!verifyCrc64(checkpoint, rangeCount, effectiveRangeSize, size)) {
+            oss.printWarning("下载文件CRC64校验失败：" + key);
+            Files.deleteIfExists(partFile);
+            checkpoint.delete();
+            return false;
+        }
+        CheckpointFiles.moveReplacing(partFile, target);
+        checkpoint.delete();
+        return true;
+    }
+
+    /**
+     * 按顺序合并各分段下载时算出的CRC，与对象的 x-oss-hash-crc64ecma 比较。
+     * 元数据来自列举结果时没有该响应头，重新HEAD获取；对象已变化时按校验失败处理
+     */
+    private boolean verifyCrc64(DownloadCheckpoint checkpoint, int rangeCount, long rangeSize, long size) throws IOException {
+        if (size == 0) {
+            return true;
+        }
+        long crc = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            Long rangeCrc = checkpoint.getCrc64(i);
+            if (rangeCrc == null) {
+                oss.printWarning("断点记录缺少分段CRC64，未校验数据完整性：" + key);
+                return true;
+            }
+            crc = CRC64.combine(crc, rangeCrc, Math.min(rangeSize, size - i * rangeSize));
+        }
+        String expected = metadata.getHeader(Crc64RequestBody.CRC64_HEADER);
+        if (expected == null) {
+            ObjectMetadata current = oss.getObjectMetadata(key);
+            if (current == null || (metadata.getETag() != null && !metadata.getETag().equals(current.getETag()))) {
+                return false;
+            }
+            expected = current.getHeader(Crc64RequestBody.CRC64_HEADER);
+        }
+        return oss.verifyCrc64(expected, crc, key);
+    }
+}
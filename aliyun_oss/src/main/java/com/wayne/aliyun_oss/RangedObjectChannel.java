@@ -0,0 +1,283 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Headers;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 基于 Range 请求的对象随机读取通道。
+ * 随机读取按块预读并缓存最近使用的块；连续读取超过预读窗口后切换为单个流式请求，
+ * 之后再出现跳转则关闭流并回到按块读取。
+ * 对象大小与ETag从首次响应的 Content-Range 中获得，之后的请求都带 If-Match，对象被修改时抛出 ObjectChangedException
+ */
+class RangedObjectChannel implements SeekableByteChannel {
+    private final AliyunOSS oss;
+    private final String key;
+    private final int blockSize;
+    private final int readAhead;
+    private final Map<Long, byte[]> blocks;
+
+    private long size = -1;
+    private String eTag;
+    private long position;
+    private boolean open = true;
+
+    // 连续读取检测
+    private long lastReadEnd = -1;
+    private long sequentialBytes;
+
+    // 流式读取状态
+    private Response stream;
+    private BufferedSource streamSource;
+    private long streamPosition;
+
+    RangedObjectChannel(AliyunOSS oss, String key, int blockSize, int readAhead, int cacheBlocks) {
+        this.oss = oss;
+        this.key = key;
+        this.blockSize = blockSize;
+        // 预读的块必须都能放入缓存
+        this.readAhead = Math.max(blockSize, Math.min(readAhead, blockSize * cacheBlocks));
+        this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > cacheBlocks;
+            }
+        };
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        if (size >= 0 && position >= size) {
+            return -1;
+        }
+
+        if (position != lastReadEnd) {
+            sequentialBytes = 0;
+            closeStream();
+        }
+
+        int read;
+        long blockIndex = position / blockSize;
+        byte[] block = blocks.get(blockIndex);
+        if (stream != null && streamPosition == position) {
+            read = readFromStream(dst);
+        } else if (block != null) {
+            read = readFromBlock(block, blockIndex, dst);
+        } else if (sequentialBytes >= readAhead) {
+            openStream();
+            read = readFromStream(dst);
+        } else {
+            block = fetchBlocks(blockIndex);
+            if (block == null) {
+                return -1;
+            }
+            read = readFromBlock(block, blockIndex, dst);
+        }
+        if (read <= 0) {
+            return read;
+        }
+
+        position += read;
+        sequentialBytes += read;
+        lastReadEnd = position;
+        return read;
+    }
+
+    private int readFromBlock(byte[] block, long blockIndex, ByteBuffer dst) {
+        int offset = (int) (position - blockIndex * blockSize);
+        if (offset >= block.length) {
+            return -1;
+        }
+        int length = Math.min(dst.remaining(), block.length - offset);
+        dst.put(block, offset, length);
+        return length;
+    }
+
+    private int readFromStream(ByteBuffer dst) throws IOException {
+        int read = streamSource.read(dst);
+        if (read < 0) {
+            closeStream();
+            if (position < size) {
+                throw new EOFException("读取对象时连接提前结束：" + key);
+            }
+            return -1;
+        }
+        streamPosition += read;
+        return read;
+    }
+
+    /**
+     * 从指定块开始按预读窗口取回若干块放入缓存
+     * @return 指定块的内容，超出对象末尾时返回null
+     */
+    private byte[] fetchBlocks(long blockIndex) throws IOException {
+        long start = blockIndex * blockSize;
+        long end = start + readAhead - 1;
+        if (size >= 0) {
+            end = Math.min(end, size - 1);
+        }
+        try (Response response = executeRange("bytes=" + start + "-" + end)) {
+            if (response.code() == 416) {
+                return null;
+            }
+            long[] range = parseRange(response);
+            storeBlocks(response.body().source(), range[0], range[1]);
+        }
+        return blocks.get(blockIndex);
+    }
+
+    /**
+     * 把 [start, end] 范围内的数据按块对齐后存入缓存，起始处不完整的块丢弃
+     */
+    private void storeBlocks(BufferedSource source, long start, long end) throws IOException {
+        long alignedStart = (start + blockSize - 1) / blockSize * blockSize;
+        source.skip(alignedStart - start);
+        for (long blockStart = alignedStart; blockStart <= end; blockStart += blockSize) {
+            int length = (int) Math.min(blockSize, end - blockStart + 1);
+            blocks.put(blockStart / blockSize, source.readByteArray(length));
+        }
+    }
+
+    private void openStream() throws IOException {
+        Response response = executeRange("bytes=" + position + "-");
+        try {
+            parseRange(response);
+        } catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+        stream = response;
+        streamSource = response.body().source();
+        streamPosition = position;
+    }
+
+    private void closeStream() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+            streamSource = null;
+        }
+    }
+
+    private Response executeRange(String range) throws IOException {
+        Headers.Builder headers = new Headers.Builder().add("Range", range);
+        if (eTag != null) {
+            headers.add("If-Match", eTag);
+        }
+        return oss.executeGet(key, headers.build());
+    }
+
+    /**
+     * 校验响应并记录对象大小与ETag
+     * @return 本次响应覆盖的 [start, end]
+     */
+    private long[] parseRange(Response response) throws IOException {
+        if (response.code() == 412) {
+            throw new ObjectChangedException(key);
+        }
+        if (response.code() == 404) {
+            throw new FileNotFoundException("文件不存在：" + key);
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            String errorMessage = response.body() != null ? response.body().string() : "未知错误";
+            throw new IOException("读取对象 " + key + " 失败：" + errorMessage);
+        }
+        if (eTag == null) {
+            eTag = response.header("ETag");
+        }
+        String contentRange = response.header("Content-Range");
+        if (response.code() != 206 || contentRange == null) {
+            // 服务端忽略了 Range（如空对象），返回的是完整内容
+            size = response.body().contentLength();
+            return new long[]{0, size - 1};
+        }
+        // 格式：bytes start-end/total
+        int space = contentRange.indexOf(' ');
+        int dash = contentRange.indexOf('-', space);
+        int slash = contentRange.indexOf('/', dash);
+        size = Long.parseLong(contentRange.substring(slash + 1).trim());
+        return new long[]{
+                Long.parseLong(contentRange.substring(space + 1, dash).trim()),
+                Long.parseLong(contentRange.substring(dash + 1, slash).trim())
+        };
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("位置不能为负数：" + newPosition);
+        }
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * 对象大小未知时，用一个后缀 Range 请求同时取得大小与末尾的预读窗口，
+     * 因此“先取大小再读文件尾”只需要一次请求
+     */
+    @Override
+    public synchronized long size() throws IOException {
+        ensureOpen();
+        if (size < 0) {
+            try (Response response = executeRange("bytes=-" + readAhead)) {
+                if (response.code() == 416) {
+                    // 空对象不支持后缀范围
+                    size = 0;
+                    return size;
+                }
+                long[] range = parseRange(response);
+                storeBlocks(response.body().source(), range[0], range[1]);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        closeStream();
+        blocks.clear();
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
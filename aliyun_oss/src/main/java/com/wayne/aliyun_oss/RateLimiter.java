@@ -0,0 +1,75 @@
+package com.wayne.aliyun_oss;
+
+import java.io.InterruptedIOException;
+
+/**
+ * 按字节计的令牌桶限速器，上传和下载的数据共用同一个额度。
+ * 令牌最多积累 0.1 秒的量，突发流量因此很小；速率可以在传输过程中随时调整，0.1 秒内生效
+ */
+public class RateLimiter {
+    static final long MAX_WAIT_MILLIS = 100;
+
+    private long bytesPerSecond;
+    private double available;
+    private long lastRefillNanos = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond 每秒字节数，不大于0表示不限速
+     */
+    public RateLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * 调整限速，正在进行的传输也随之调整
+     * @param bytesPerSecond 每秒字节数，不大于0表示不限速
+     */
+    public synchronized void setRate(long bytesPerSecond) {
+        refill();
+        this.bytesPerSecond = bytesPerSecond;
+        available = Math.min(available, capacity());
+    }
+
+    public synchronized long getRate() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * 取得发送或接收 bytes 字节的额度，额度不足时阻塞。
+     * 只要桶中还有令牌就放行，欠下的部分由之后的调用等待偿还，因此每次调用的字节数应较小
+     */
+    void acquire(long bytes) throws InterruptedIOException {
+        while (true) {
+            long waitMillis;
+            synchronized (this) {
+                if (bytesPerSecond <= 0) {
+                    return;
+                }
+                refill();
+                if (available > 0) {
+                    available -= bytes;
+                    return;
+                }
+                waitMillis = Math.min(MAX_WAIT_MILLIS, (long) Math.ceil(-available * 1000 / bytesPerSecond));
+            }
+            try {
+                Thread.sleep(Math.max(1, waitMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("限速等待被中断");
+            }
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (bytesPerSecond > 0) {
+            available = Math.min(capacity(), available + (now - lastRefillNanos) / 1e9 * bytesPerSecond);
+        }
+        lastRefillNanos = now;
+    }
+
+    private double capacity() {
+        return Math.max(bytesPerSecond / 10.0, ThrottlingInterceptor.CHUNK_SIZE);
+    }
+}
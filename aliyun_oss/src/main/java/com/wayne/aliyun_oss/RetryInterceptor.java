@@ -0,0 +1,230 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按 RetryPolicy 重试请求的拦截器，所有经过客户端的请求都会经过它。
+ * 同步请求在拦截器中退避等待，调用超时覆盖整个调用，包括各次重试和退避等待；
+ * 经 enqueue 发送的异步请求不在拦截器中重试，而是在定时器上等待后重新发送，不占用 OkHttp 调度器的线程
+ */
+class RetryInterceptor implements Interceptor {
+    private static final ScheduledExecutorService RETRY_TIMER =
+            Executors.newSingleThreadScheduledExecutor(AliyunOSS.daemonThreadFactory("oss-retry"));
+
+    private final AliyunOSS oss;
+    private final RetryPolicy policy;
+    private final Object budgetLock = new Object();
+    private double budget;
+
+    RetryInterceptor(AliyunOSS oss, RetryPolicy policy) {
+        this.oss = oss;
+        this.policy = policy;
+        this.budget = policy.getBudgetTokens();
+    }
+
+    RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.tag(AsyncRetry.class) != null) {
+            return chain.proceed(request);
+        }
+        for (int attempt = 1; ; attempt++) {
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                long delay = retryDelay(request, attempt, null, e, chain.call().isCanceled());
+                if (delay < 0) {
+                    throw e;
+                }
+                sleep(chain, delay);
+                continue;
+            }
+            long delay = retryDelay(request, attempt, response, null, false);
+            if (delay < 0) {
+                return response;
+            }
+            response.close();
+            sleep(chain, delay);
+        }
+    }
+
+    /**
+     * 异步发送请求，失败时按策略在定时器上退避后发送调用的副本。
+     * 调用设置了超时时，超时覆盖整个调用：每个副本只使用剩余的时间，剩余时间不够等待时不再重试
+     * @return 取消整个调用（包括正在等待的重试）的句柄
+     */
+    Runnable enqueue(Call call, Callback callback) {
+        Request request = call.request();
+        AsyncRetry retry = new AsyncRetry(callback, call.timeout().timeoutNanos());
+        Call first = oss.getHttpClient().newCall(request.newBuilder().tag(AsyncRetry.class, retry).build());
+        first.timeout().timeout(call.timeout().timeoutNanos(), TimeUnit.NANOSECONDS);
+        retry.start(first);
+        return retry::cancel;
+    }
+
+    /**
+     * 判断第 attempt 次尝试之后是否重试：需要重试时消耗一次预算并返回等待的毫秒数，否则返回 -1
+     * @param response 收到的响应，请求失败时为null
+     * @param error 请求失败的原因，收到响应时为null
+     */
+    private long retryDelay(Request request, int attempt, Response response, IOException error, boolean canceled) {
+        if (response != null && !RetryPolicy.isRetryableStatus(response.code())) {
+            if (attempt == 1 && response.isSuccessful()) {
+                refill();
+            }
+            return -1;
+        }
+        if (canceled || !RetryPolicy.isIdempotent(request) || attempt >= policy.getMaxAttempts() || !tryAcquire()) {
+            return -1;
+        }
+        observeRetry(request, attempt);
+        if (response != null) {
+            oss.printWarning("服务端返回" + response.code() + "，第" + attempt + "次重试：" + request.method() + " " + request.url().encodedPath());
+        } else {
+            oss.printWarning("请求失败，第" + attempt + "次重试：" + request.method() + " " + request.url().encodedPath() + "，" + error);
+        }
+        long delay = policy.backoffMillis(attempt);
+        String retryAfter = response != null ? response.header("Retry-After") : null;
+        if (retryAfter != null) {
+            try {
+                delay = Math.max(delay, Math.min(policy.getMaxDelayMillis(), Long.parseLong(retryAfter.trim()) * 1000));
+            } catch (NumberFormatException e) {
+                // 日期格式的 Retry-After 忽略，按退避时间等待
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * 从预算中取出一次重试（或对冲）的额度
+     */
+    boolean tryAcquire() {
+        synchronized (budgetLock) {
+            if (budget < 1) {
+                return false;
+            }
+            budget -= 1;
+            return true;
+        }
+    }
+
+    private void refill() {
+        synchronized (budgetLock) {
+            budget = Math.min(policy.getBudgetTokens(), budget + policy.getBudgetRefillRatio());
+        }
+    }
+
+    private static void observeRetry(Request request, int attempt) {
+        TransferObserver observer = request.tag(TransferObserver.class);
+        if (observer != null) {
+            observer.retry(MetricsInterceptor.operationName(request), MetricsInterceptor.objectKey(request), attempt);
+        }
+    }
+
+    private static void sleep(Chain chain, long delay) throws IOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("重试等待被中断");
+        }
+        if (chain.call().isCanceled()) {
+            throw new IOException("Canceled");
+        }
+    }
+
+    /**
+     * 一个异步调用的重试状态，同时作为请求标记让拦截器跳过同步重试
+     */
+    private final class AsyncRetry implements Callback {
+        private final Callback callback;
+        private final long deadlineNanos;
+        private int attempt = 1;
+        private Call current;
+        private ScheduledFuture<?> pendingRetry;
+        private boolean canceled;
+
+        private AsyncRetry(Callback callback, long timeoutNanos) {
+            this.callback = callback;
+            this.deadlineNanos = timeoutNanos > 0 ? System.nanoTime() + timeoutNanos : 0;
+        }
+
+        private void start(Call call) {
+            synchronized (this) {
+                current = call;
+            }
+            call.enqueue(this);
+        }
+
+        private synchronized void cancel() {
+            canceled = true;
+            if (pendingRetry != null) {
+                pendingRetry.cancel(false);
+            }
+            current.cancel();
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            long delay = retryDelay(call.request(), attempt, null, e, call.isCanceled() || isCanceled());
+            if (delay < 0 || !scheduleRetry(call, delay)) {
+                callback.onFailure(call, e);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            long delay = retryDelay(call.request(), attempt, response, null, isCanceled());
+            if (delay < 0 || !scheduleRetry(call, delay)) {
+                callback.onResponse(call, response);
+                return;
+            }
+            response.close();
+        }
+
+        private synchronized boolean isCanceled() {
+            return canceled;
+        }
+
+        private synchronized boolean scheduleRetry(Call previous, long delayMillis) {
+            if (canceled) {
+                return false;
+            }
+            Call next = previous.clone();
+            if (deadlineNanos > 0) {
+                long remaining = deadlineNanos - System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(delayMillis);
+                if (remaining <= 0) {
+                    return false;
+                }
+                next.timeout().timeout(remaining, TimeUnit.NANOSECONDS);
+            }
+            attempt++;
+            pendingRetry = RETRY_TIMER.schedule(() -> {
+                synchronized (this) {
+                    if (canceled) {
+                        return;
+                    }
+                    current = next;
+                }
+                next.enqueue(this);
+            }, delayMillis, TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Request;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求失败后的重试策略：指数退避加随机抖动，只重试幂等的请求，并以重试预算限制重试总量，
+ * 避免服务端过载时重试进一步放大压力。可选地对读取对象的GET请求做对冲：
+ * 请求超过近期P95延迟仍未响应时再发出一个相同的请求，取先返回的一个并取消另一个
+ */
+public final class RetryPolicy {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 100;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+    public static final int DEFAULT_BUDGET_TOKENS = 100;
+    public static final double DEFAULT_BUDGET_REFILL_RATIO = 0.1;
+    public static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final int budgetTokens;
+    private final double budgetRefillRatio;
+    private final boolean hedgedReads;
+    private final double hedgePercentile;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.baseDelayMillis = builder.baseDelayMillis;
+        this.maxDelayMillis = builder.maxDelayMillis;
+        this.budgetTokens = builder.budgetTokens;
+        this.budgetRefillRatio = builder.budgetRefillRatio;
+        this.hedgedReads = builder.hedgedReads;
+        this.hedgePercentile = builder.hedgePercentile;
+    }
+
+    /**
+     * 默认策略：最多尝试3次，退避100毫秒起、上限5秒，不做对冲
+     */
+    public static RetryPolicy defaults() {
+        return builder().build();
+    }
+
+    /**
+     * 不重试也不对冲
+     */
+    public static RetryPolicy none() {
+        return builder().maxAttempts(1).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        private long baseDelayMillis = DEFAULT_BASE_DELAY_MILLIS;
+        private long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+        private int budgetTokens = DEFAULT_BUDGET_TOKENS;
+        private double budgetRefillRatio = DEFAULT_BUDGET_REFILL_RATIO;
+        private boolean hedgedReads;
+        private double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+
+        private Builder() {
+        }
+
+        /**
+         * 设置每个请求的最大尝试次数（含第一次），1 表示不重试
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("最大尝试次数必须大于0");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * 设置退避时间：第n次重试前等待 [0, min(最大值, 基础值 * 2^(n-1))] 之间的随机时间
+         */
+        public Builder backoff(long baseDelay, long maxDelay, TimeUnit unit) {
+            if (baseDelay < 0 || maxDelay < baseDelay) {
+                throw new IllegalArgumentException("退避时间无效");
+            }
+            this.baseDelayMillis = unit.toMillis(baseDelay);
+            this.maxDelayMillis = unit.toMillis(maxDelay);
+            return this;
+        }
+
+        /**
+         * 设置重试预算：预算最多积累 tokens 次重试，每次重试或对冲消耗一次，
+         * 每个首次即成功的请求恢复 refillRatio 次。持续失败时重试次数因此不超过成功请求的固定比例
+         */
+        public Builder retryBudget(int tokens, double refillRatio) {
+            if (tokens < 0 || refillRatio < 0) {
+                throw new IllegalArgumentException("重试预算无效");
+            }
+            this.budgetTokens = tokens;
+            this.budgetRefillRatio = refillRatio;
+            return this;
+        }
+
+        /**
+         * 开启读取对象时的对冲请求
+         */
+        public Builder hedgedReads(boolean hedgedReads) {
+            this.hedgedReads = hedgedReads;
+            return this;
+        }
+
+        /**
+         * 设置发出对冲请求的延迟分位数，默认为近期响应延迟的P95
+         */
+        public Builder hedgePercentile(double hedgePercentile) {
+            if (hedgePercentile <= 0 || hedgePercentile >= 1) {
+                throw new IllegalArgumentException("分位数必须在0和1之间");
+            }
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    int getBudgetTokens() {
+        return budgetTokens;
+    }
+
+    double getBudgetRefillRatio() {
+        return budgetRefillRatio;
+    }
+
+    boolean isHedgedReads() {
+        return hedgedReads;
+    }
+
+    double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    /**
+     * 第 attempt 次重试前的等待时间（全抖动）
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = baseDelayMillis << Math.min(attempt - 1, 30);
+        if (ceiling < 0 || ceiling > maxDelayMillis) {
+            ceiling = maxDelayMillis;
+        }
+        return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+    }
+
+    /**
+     * 重复发送不会改变结果的请求才能重试：GET、HEAD、DELETE，请求体可重放的PUT（覆盖写入同一对象或分片），
+     * 以及批量删除。初始化和完成分片上传的POST不会重试，重复初始化会留下多余的上传
+     */
+    static boolean isIdempotent(Request request) {
+        switch (request.method()) {
+            case "GET":
+            case "HEAD":
+            case "DELETE":
+                return true;
+            case "PUT":
+                return request.body() == null || !request.body().isOneShot();
+            case "POST":
+                return request.url().queryParameterNames().contains("delete");
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 服务端错误和限流可以重试，其余状态码说明请求本身有问题
+     */
+    static boolean isRetryableStatus(int code) {
+        return code == 429 || code == 500 || code == 502 || code == 503 || code == 504;
+    }
+}
@@ -0,0 +1,111 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 在字节流层面限速：请求体每写出一块、响应体每读入一块，都要从请求所带的各个限速器取得额度。
+ * 限速器通过请求的 TransferLimits 标签传入，没有标签的请求不受限制
+ */
+class ThrottlingInterceptor implements Interceptor {
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * 一个请求需要经过的限速器，例如实例的全局限速和某个传输任务的限速
+     */
+    static class TransferLimits {
+        private final List<RateLimiter> limiters;
+
+        TransferLimits(List<RateLimiter> limiters) {
+            this.limiters = limiters;
+        }
+
+        List<RateLimiter> limiters() {
+            return limiters;
+        }
+
+        void acquire(long bytes) throws IOException {
+            for (RateLimiter limiter : limiters) {
+                limiter.acquire(bytes);
+            }
+        }
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        TransferLimits limits = request.tag(TransferLimits.class);
+        if (limits == null) {
+            return chain.proceed(request);
+        }
+        if (request.body() != null) {
+            request = request.newBuilder().method(request.method(), throttle(request.body(), limits)).build();
+        }
+        Response response = chain.proceed(request);
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        ForwardingSource source = new ForwardingSource(body.source()) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long n = super.read(sink, Math.min(byteCount, CHUNK_SIZE));
+                if (n > 0) {
+                    limits.acquire(n);
+                }
+                return n;
+            }
+        };
+        return response.newBuilder()
+                .body(ResponseBody.create(Okio.buffer(source), body.contentType(), body.contentLength()))
+                .build();
+    }
+
+    private static RequestBody throttle(RequestBody body, TransferLimits limits) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return body.contentType();
+            }
+
+            @Override
+            public long contentLength() throws IOException {
+                return body.contentLength();
+            }
+
+            @Override
+            public boolean isOneShot() {
+                return body.isOneShot();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                BufferedSink throttled = Okio.buffer(new ForwardingSink(sink) {
+                    @Override
+                    public void write(Buffer source, long byteCount) throws IOException {
+                        while (byteCount > 0) {
+                            long n = Math.min(byteCount, CHUNK_SIZE);
+                            limits.acquire(n);
+                            super.write(source, n);
+                            byteCount -= n;
+                        }
+                    }
+                });
+                body.writeTo(throttled);
+                throttled.emit();
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+
+/**
+ * 传输事件的监听接口，所有方法都有空的默认实现，只需覆盖关心的事件。
+ * 回调在发送请求的线程上同步执行，应尽快返回；回调抛出的异常会被忽略
+ */
+public interface TransferListener {
+    TransferListener NOOP = new TransferListener() {
+    };
+
+    /**
+     * 一次HTTP请求收到响应头，每次重试都单独回调
+     * @param operation 操作名称，例如 GetObject、UploadPart、ListObjects
+     * @param key 对象键值，列举操作为前缀
+     * @param statusCode 响应状态码
+     * @param latencyNanos 从发出请求到收到响应头的时间
+     */
+    default void onRequestCompleted(String operation, String key, int statusCode, long latencyNanos) {
+    }
+
+    /**
+     * 一次HTTP请求没有收到响应，例如连接失败、超时或被取消
+     */
+    default void onRequestFailed(String operation, String key, IOException error, long latencyNanos) {
+    }
+
+    /**
+     * 请求失败后即将进行第 attempt 次重试
+     */
+    default void onRetry(String operation, String key, int attempt) {
+    }
+
+    default void onBytesSent(long bytes) {
+    }
+
+    default void onBytesReceived(long bytes) {
+    }
+
+    /**
+     * 单个文件上传或下载的进度，传输过程中最多每100毫秒回调一次，完成时再回调一次；
+     * 同一键值上同时进行的多次传输各自回调
+     * @param key 对象键值
+     * @param bytesTransferred 已成功传输的字节数，失败后重试的请求不重复计入，不超过文件大小
+     * @param totalBytes 文件大小
+     * @param bytesPerSecond 从开始到现在的平均速率
+     */
+    default void onProgress(String key, long bytesTransferred, long totalBytes, double bytesPerSecond) {
+    }
+}
@@ -0,0 +1,129 @@
+package com.wayne.aliyun_oss;
+
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AliyunOSS 内置的传输统计：各类操作的延迟直方图、请求与重试次数、收发字节数，以及连接池和调度器的状态。
+ * 连接池和调度器的数据来自实例使用的 OkHttpClient，与其他实例共用时为合计值
+ */
+public class TransferMetrics implements TransferListener {
+    private final OkHttpClient client;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    TransferMetrics(OkHttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public void onRequestCompleted(String operation, String key, int statusCode, long latencyNanos) {
+        requests.incrementAndGet();
+        if (statusCode >= 500) {
+            failedRequests.incrementAndGet();
+        }
+        latencies.computeIfAbsent(operation, name -> new LatencyHistogram()).recordNanos(latencyNanos);
+    }
+
+    @Override
+    public void onRequestFailed(String operation, String key, IOException error, long latencyNanos) {
+        requests.incrementAndGet();
+        failedRequests.incrementAndGet();
+    }
+
+    @Override
+    public void onRetry(String operation, String key, int attempt) {
+        retries.incrementAndGet();
+    }
+
+    @Override
+    public void onBytesSent(long bytes) {
+        bytesSent.addAndGet(bytes);
+    }
+
+    @Override
+    public void onBytesReceived(long bytes) {
+        bytesReceived.addAndGet(bytes);
+    }
+
+    /**
+     * @return 操作名称到延迟直方图（到收到响应头为止）的映射
+     */
+    public Map<String, LatencyHistogram> getLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<>(latencies));
+    }
+
+    /**
+     * @return 指定操作的延迟直方图，尚无记录时为null
+     */
+    public LatencyHistogram getLatency(String operation) {
+        return latencies.get(operation);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return 没有收到响应或服务端返回5xx的请求数
+     */
+    public long getFailedRequestCount() {
+        return failedRequests.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public int getConnectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+
+    public int getIdleConnectionCount() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    /**
+     * @return 调度器中正在执行的异步请求数
+     */
+    public int getRunningCallCount() {
+        return client.dispatcher().runningCallsCount();
+    }
+
+    /**
+     * @return 因超过并发上限在调度器中排队的异步请求数
+     */
+    public int getQueuedCallCount() {
+        return client.dispatcher().queuedCallsCount();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("requests=%d failed=%d retries=%d sent=%d received=%d connections=%d idle=%d running=%d queued=%d",
+                getRequestCount(), getFailedRequestCount(), getRetryCount(), getBytesSent(), getBytesReceived(),
+                getConnectionCount(), getIdleConnectionCount(), getRunningCallCount(), getQueuedCallCount()));
+        for (Map.Entry<String, LatencyHistogram> entry : getLatencies().entrySet()) {
+            builder.append('\n').append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return builder.toString();
+    }
+}
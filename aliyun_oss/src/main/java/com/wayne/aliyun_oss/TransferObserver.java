@@ -0,0 +1,144 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把传输事件分发给内置统计和用户的监听器，并跟踪正在进行的文件传输的进度。
+ * 以请求标签的形式传给 MetricsInterceptor 和 RetryInterceptor，共用客户端的各个实例因此各自统计；
+ * 每次文件传输的 Progress 也作为请求标签随发送数据的请求传递，因此按传输而不是按键值区分
+ */
+class TransferObserver {
+    static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+
+    private final AliyunOSS oss;
+    private final TransferMetrics metrics;
+    private volatile TransferListener listener;
+
+    TransferObserver(AliyunOSS oss, TransferMetrics metrics, TransferListener listener) {
+        this.oss = oss;
+        this.metrics = metrics;
+        this.listener = listener;
+    }
+
+    TransferMetrics getMetrics() {
+        return metrics;
+    }
+
+    void setListener(TransferListener listener) {
+        this.listener = listener != null ? listener : TransferListener.NOOP;
+    }
+
+    void requestCompleted(String operation, String key, int statusCode, long latencyNanos) {
+        metrics.onRequestCompleted(operation, key, statusCode, latencyNanos);
+        try {
+            listener.onRequestCompleted(operation, key, statusCode, latencyNanos);
+        } catch (RuntimeException e) {
+            listenerFailed(e);
+        }
+    }
+
+    void requestFailed(String operation, String key, IOException error, long latencyNanos) {
+        metrics.onRequestFailed(operation, key, error, latencyNanos);
+        try {
+            listener.onRequestFailed(operation, key, error, latencyNanos);
+        } catch (RuntimeException e) {
+            listenerFailed(e);
+        }
+    }
+
+    void retry(String operation, String key, int attempt) {
+        metrics.onRetry(operation, key, attempt);
+        try {
+            listener.onRetry(operation, key, attempt);
+        } catch (RuntimeException e) {
+            listenerFailed(e);
+        }
+    }
+
+    /**
+     * @param progress 计入的文件传输进度，不计入进度时为null
+     */
+    void bytesSent(Progress progress, long bytes) {
+        metrics.onBytesSent(bytes);
+        try {
+            listener.onBytesSent(bytes);
+        } catch (RuntimeException e) {
+            listenerFailed(e);
+        }
+        addProgress(progress, bytes);
+    }
+
+    void bytesReceived(Progress progress, long bytes) {
+        metrics.onBytesReceived(bytes);
+        try {
+            listener.onBytesReceived(bytes);
+        } catch (RuntimeException e) {
+            listenerFailed(e);
+        }
+        addProgress(progress, bytes);
+    }
+
+    /**
+     * 撤销一次失败的请求计入进度的字节，重试重新发送或接收的数据因此不会重复计入
+     */
+    void discardProgress(Progress progress, long bytes) {
+        if (progress != null && bytes > 0) {
+            progress.transferred.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * 开始跟踪一个文件的传输进度，返回的进度对象需作为请求标签传给发送数据的请求
+     */
+    Progress beginTransfer(String key, long totalBytes) {
+        return new Progress(key, totalBytes);
+    }
+
+    void endTransfer(Progress progress) {
+        report(progress, System.nanoTime());
+    }
+
+    private void addProgress(Progress progress, long bytes) {
+        if (progress == null) {
+            return;
+        }
+        progress.transferred.addAndGet(bytes);
+        long now = System.nanoTime();
+        long last = progress.lastReportNanos.get();
+        if (now - last >= PROGRESS_INTERVAL_NANOS && progress.lastReportNanos.compareAndSet(last, now)) {
+            report(progress, now);
+        }
+    }
+
+    private void report(Progress progress, long now) {
+        // 对象在下载过程中被修改而重新下载等情况仍可能重复计数，不超过总大小
+        long transferred = Math.max(0, progress.transferred.get());
+        if (progress.totalBytes >= 0) {
+            transferred = Math.min(transferred, progress.totalBytes);
+        }
+        double seconds = Math.max(1, now - progress.startNanos) / 1e9;
+        try {
+            listener.onProgress(progress.key, transferred, progress.totalBytes, transferred / seconds);
+        } catch (RuntimeException e) {
+            listenerFailed(e);
+        }
+    }
+
+    private void listenerFailed(RuntimeException e) {
+        oss.printWarning("传输监听器出错：" + e);
+    }
+
+    static class Progress {
+        private final String key;
+        private final long totalBytes;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong transferred = new AtomicLong();
+        private final AtomicLong lastReportNanos = new AtomicLong(startNanos);
+
+        private Progress(String key, long totalBytes) {
+            this.key = key;
+            this.totalBytes = totalBytes;
+        }
+    }
+}
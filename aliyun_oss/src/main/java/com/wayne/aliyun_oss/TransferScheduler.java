@@ -0,0 +1,162 @@
+package com.wayne.aliyun_oss;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 目录传输调度器：生产者边遍历边提交任务到有界队列，工作线程按文件从小到大优先取任务，
+ * 避免线程池被单个大文件拖住。同一实例的所有调度器共用一个 HostSlots，
+ * 多个目录传输同时进行时对每个主机同时传输的文件数合计不超过上限
+ */
+class TransferScheduler implements AutoCloseable {
+    private static final Comparator<Job> SMALLEST_FIRST =
+            Comparator.comparingLong((Job job) -> job.size).thenComparingLong(job -> job.sequence);
+    /**
+     * 关闭时放入队列的哨兵，排在所有任务之前，取到它的工作线程退出
+     */
+    private static final Job SHUTDOWN = new Job(null, Long.MIN_VALUE, Long.MIN_VALUE, null);
+
+    private final AliyunOSS oss;
+    private final HostSlots hostSlots;
+    private final int parallelism;
+    private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>(64, SMALLEST_FIRST);
+    private final Semaphore queueSlots;
+    private final ExecutorService workers;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean success = new AtomicBoolean(true);
+    private final Object lock = new Object();
+    private long pending;
+
+    TransferScheduler(AliyunOSS oss, int parallelism, HostSlots hostSlots, int queueCapacity, String name) {
+        this.oss = oss;
+        this.hostSlots = hostSlots;
+        this.parallelism = Math.max(1, parallelism);
+        this.queueSlots = new Semaphore(Math.max(1, queueCapacity));
+        this.workers = AliyunOSS.newWorkerPool(this.parallelism, name);
+        for (int i = 0; i < this.parallelism; i++) {
+            workers.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * 提交一个传输任务，队列已满时阻塞，从而对生产者形成背压
+     * @param host 目标主机
+     * @param size 传输字节数，用于排序
+     * @param task 传输任务，返回是否成功
+     */
+    void submit(String host, long size, Callable<Boolean> task) throws InterruptedException {
+        queueSlots.acquire();
+        synchronized (lock) {
+            pending++;
+        }
+        queue.put(new Job(host, size, sequence.getAndIncrement(), task));
+    }
+
+    /**
+     * 等待所有已提交的任务完成
+     * @return 是否全部成功
+     */
+    boolean awaitCompletion() throws InterruptedException {
+        synchronized (lock) {
+            while (pending > 0) {
+                lock.wait();
+            }
+        }
+        return success.get();
+    }
+
+    @Override
+    public void close() {
+        for (int i = 0; i < parallelism; i++) {
+            queue.put(SHUTDOWN);
+        }
+        workers.shutdownNow();
+    }
+
+    private void runWorker() {
+        while (true) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job == SHUTDOWN) {
+                return;
+            }
+            queueSlots.release();
+            try {
+                hostSlots.acquire(job.host);
+                try {
+                    if (!job.task.call()) {
+                        success.set(false);
+                    }
+                } finally {
+                    hostSlots.release(job.host);
+                }
+            } catch (InterruptedException e) {
+                success.set(false);
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                success.set(false);
+                oss.printError("传输任务失败：" + e);
+            } finally {
+                synchronized (lock) {
+                    pending--;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * 每个主机同时传输的文件数上限，按任务计数而不是按HTTP请求计数。
+     * 上限可在运行时调整，调低后正在进行的传输完成前不会再发起新的传输
+     */
+    static final class HostSlots {
+        private final Map<String, Integer> inUse = new HashMap<>();
+        private int limit;
+
+        HostSlots(int limit) {
+            setLimit(limit);
+        }
+
+        synchronized void setLimit(int limit) {
+            this.limit = Math.max(1, limit);
+            notifyAll();
+        }
+
+        synchronized void acquire(String host) throws InterruptedException {
+            while (inUse.getOrDefault(host, 0) >= limit) {
+                wait();
+            }
+            inUse.merge(host, 1, Integer::sum);
+        }
+
+        synchronized void release(String host) {
+            inUse.computeIfPresent(host, (key, count) -> count > 1 ? count - 1 : null);
+            notifyAll();
+        }
+    }
+
+    private static final class Job {
+        private final String host;
+        private final long size;
+        private final long sequence;
+        private final Callable<Boolean> task;
+
+        private Job(String host, long size, long sequence, Callable<Boolean> task) {
+            this.host = host;
+            this.size = size;
+            this.sequence = sequence;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.wayne.aliyun_oss;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 分片上传的断点记录，保存在源文件旁边，用于中断后从第一个缺失的分片继续上传。
+ * 文件名包含目标键值的摘要，同一文件上传到不同键值时各自保留断点记录
+ */
+class UploadCheckpoint {
+    static final String SUFFIX = ".ossupload";
+
+    private final Path file;
+    private final String key;
+    private final String uploadId;
+    private final long partSize;
+    private final long fileSize;
+    private final long lastModified;
+    private final Map<Integer, String> parts = new TreeMap<>();
+    private final Map<Integer, Long> crcs = new TreeMap<>();
+
+    UploadCheckpoint(Path file, String key, String uploadId, long partSize, long fileSize, long lastModified) {
+        this.file = file;
+        this.key = key;
+        this.uploadId = uploadId;
+        this.partSize = partSize;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+    }
+
+    static Path pathFor(Path source, String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return Paths.get(source + "." + LocalHashCache.toHex(Arrays.copyOf(digest, 8)).toLowerCase() + SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 读取断点记录
+     * @param file 断点文件
+     * @return 断点记录，不存在或已损坏时返回null
+     */
+    static UploadCheckpoint load(Path file) {
+        Properties properties = CheckpointFiles.load(file);
+        if (properties == null) {
+            return null;
+        }
+        try {
+            UploadCheckpoint checkpoint = new UploadCheckpoint(
+                    file,
+                    properties.getProperty("key"),
+                    properties.getProperty("uploadId"),
+                    Long.parseLong(properties.getProperty("partSize")),
+                    Long.parseLong(properties.getProperty("fileSize")),
+                    Long.parseLong(properties.getProperty("lastModified")));
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith("part.")) {
+                    checkpoint.parts.put(Integer.parseInt(name.substring(5)), properties.getProperty(name));
+                } else if (name.startsWith("crc.")) {
+                    checkpoint.crcs.put(Integer.parseInt(name.substring(4)), Long.parseUnsignedLong(properties.getProperty(name)));
+                }
+            }
+            return checkpoint.key != null && checkpoint.uploadId != null ? checkpoint : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    boolean matches(String key, long fileSize, long lastModified) {
+        return this.key.equals(key) && this.fileSize == fileSize && this.lastModified == lastModified;
+    }
+
+    /**
+     * 断点记录所属的目标键值，放弃旧的分片上传时必须使用这个键值
+     */
+    String getKey() {
+        return key;
+    }
+
+    long getPartSize() {
+        return partSize;
+    }
+
+    String getUploadId() {
+        return uploadId;
+    }
+
+    synchronized String getPartETag(int partNumber) {
+        return parts.get(partNumber);
+    }
+
+    synchronized Long getPartCrc64(int partNumber) {
+        return crcs.get(partNumber);
+    }
+
+    synchronized void addPart(PartETag part) throws IOException {
+        parts.put(part.getPartNumber(), part.getETag());
+        if (part.getCrc64() != null) {
+            crcs.put(part.getPartNumber(), part.getCrc64());
+        }
+        save();
+    }
+
+    synchronized void save() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("key", key);
+        properties.setProperty("uploadId", uploadId);
+        properties.setProperty("partSize", String.valueOf(partSize));
+        properties.setProperty("fileSize", String.valueOf(fileSize));
+        properties.setProperty("lastModified", String.valueOf(lastModified));
+        for (Map.Entry<Integer, String> entry : parts.entrySet()) {
+            properties.setProperty("part." + entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Integer, Long> entry : crcs.entrySet()) {
+            properties.setProperty("crc." + entry.getKey(), Long.toUnsignedString(entry.getValue()));
+        }
+        CheckpointFiles.store(properties, file);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}